@@ -1,15 +1,24 @@
 package com.beytullahpaytar.ecommerce;
 
+import com.beytullahpaytar.ecommerce.config.CartProperties;
+import com.beytullahpaytar.ecommerce.config.CatalogProperties;
+import com.beytullahpaytar.ecommerce.config.InventoryProperties;
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
 import com.beytullahpaytar.ecommerce.fileupload.StorageProperties;
 import com.beytullahpaytar.ecommerce.fileupload.StorageService;
+import com.beytullahpaytar.ecommerce.outbox.OutboxProperties;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties(StorageProperties.class)
+@EnableScheduling
+@EnableConfigurationProperties({StorageProperties.class, CatalogProperties.class, CartProperties.class,
+        OrderProperties.class, OutboxProperties.class, InventoryProperties.class, SearchProperties.class})
 public class ECommerceApplication {
 
     public static void main(String[] args) {
@@ -19,8 +28,8 @@ public class ECommerceApplication {
     @Bean
     CommandLineRunner init(StorageService storageService) {
         return (args) -> {
+            // Abandoned temp files are cleaned up over time by TempFileJanitor
             storageService.init();
-            storageService.deleteTempFiles();
         };
     }
 
@@ -0,0 +1,19 @@
+package com.beytullahpaytar.ecommerce.config;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@ConfigurationProperties("cart")
+public class CartProperties {
+
+    private long openCartCacheMaximumSize = 100_000;
+
+    private Duration openCartCacheTtl = Duration.ofMinutes(30);
+
+}
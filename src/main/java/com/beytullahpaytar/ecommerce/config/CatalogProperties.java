@@ -0,0 +1,23 @@
+package com.beytullahpaytar.ecommerce.config;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@ConfigurationProperties("catalog")
+public class CatalogProperties {
+
+    private int defaultPageSize = 20;
+
+    private int maxPageSize = 100;
+
+    private long itemCacheMaximumSize = 10_000;
+
+    private Duration itemCacheTtl = Duration.ofMinutes(10);
+
+}
@@ -1,5 +1,14 @@
 package com.beytullahpaytar.ecommerce.config;
 
+import com.beytullahpaytar.ecommerce.fileupload.InvalidUploadException;
+import com.beytullahpaytar.ecommerce.services.CartConflictException;
+import com.beytullahpaytar.ecommerce.services.IdempotencyKeyInProgressException;
+import com.beytullahpaytar.ecommerce.services.InvalidRequestException;
+import com.beytullahpaytar.ecommerce.services.OrderNotFoundException;
+import com.beytullahpaytar.ecommerce.services.OrderStatusConflictException;
+import com.beytullahpaytar.ecommerce.services.OutOfStockException;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -30,4 +39,44 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleHttpMessageNotReadable() {
         return ResponseEntity.badRequest().body("Invalid request body");
     }
+
+    @ExceptionHandler(OrderNotFoundException.class)
+    public ResponseEntity<String> handleOrderNotFound(OrderNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<String> handleEntityNotFound(EntityNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+
+    @ExceptionHandler(OrderStatusConflictException.class)
+    public ResponseEntity<String> handleOrderStatusConflict(OrderStatusConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(CartConflictException.class)
+    public ResponseEntity<String> handleCartConflict(CartConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<String> handleIdempotencyKeyInProgress(IdempotencyKeyInProgressException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<String> handleOutOfStock(OutOfStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<String> handleInvalidUpload(InvalidUploadException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<String> handleInvalidRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
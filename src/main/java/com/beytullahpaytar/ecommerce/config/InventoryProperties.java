@@ -0,0 +1,24 @@
+package com.beytullahpaytar.ecommerce.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties("inventory")
+public class InventoryProperties {
+
+    // Items whose stock is reserved from an in-memory lease instead of one row update per checkout
+    private Set<Long> hotItemIds = new HashSet<>();
+
+    // Units a lease takes from the database at once
+    private int hotStockChunkSize = 100;
+
+    // How often unused leased units are handed back to the database
+    private Duration hotStockFlushInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,29 @@
+package com.beytullahpaytar.ecommerce.config;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@ConfigurationProperties("order")
+public class OrderProperties {
+
+    private int defaultPageSize = 20;
+
+    private int maxPageSize = 100;
+
+    // Deepest row a page number may skip to; deeper pages are read by seeking with afterId
+    private int maxPageOffset = 10_000;
+
+    private long idempotencyMaximumKeys = 100_000;
+
+    private Duration idempotencyKeyTtl = Duration.ofHours(24);
+
+    // How long a retry waits for the request still running under its key before it gets a 409
+    private Duration idempotencyWaitTimeout = Duration.ofSeconds(30);
+
+}
@@ -0,0 +1,46 @@
+package com.beytullahpaytar.ecommerce.config;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Setter
+@Getter
+@ConfigurationProperties("search")
+public class SearchProperties {
+
+    // memory: the in-process index of ItemSearchService, postgres: the items.search_vector GIN index
+    private Mode mode = Mode.MEMORY;
+
+    private int defaultLimit = 20;
+
+    private int maxLimit = 100;
+
+    // A name token counts this many times as much as a description token
+    private int nameWeight = 3;
+
+    // BM25 term frequency saturation and document length normalization
+    private double k1 = 1.2;
+
+    private double b = 0.75;
+
+    // Indexed terms a query token is expanded to as a prefix, the rest are ignored
+    private int maxPrefixExpansions = 50;
+
+    // Items read per query during the startup rebuild, each batch is indexed on its own thread
+    private int rebuildBatchSize = 1000;
+
+    private int rebuildThreads = Runtime.getRuntime().availableProcessors();
+
+    // Suggestions kept per trie node, see TypeaheadService
+    private int typeaheadSuggestions = 10;
+
+    // Only this much of a name is indexed from each word on, longer input matches on its start
+    private int typeaheadMaxKeyLength = 40;
+
+    public enum Mode {
+        MEMORY,
+        POSTGRES
+    }
+}
@@ -1,20 +1,14 @@
 package com.beytullahpaytar.ecommerce.config;
 
 
-import com.beytullahpaytar.ecommerce.fileupload.StorageProperties;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer{
-    @Autowired
-    StorageProperties storageProperties;
-
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
@@ -24,16 +18,9 @@ public class WebConfig implements WebMvcConfigurer{
                         .allowedOrigins("http://localhost:5173", "http://localhost", "http://localhost:3000")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Cart-Token")
                         .allowCredentials(true);
             }
         };
     }
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String uploadDirPath = "file:" + storageProperties.getLocation() + "\\";
-
-        registry.addResourceHandler("/upload-dir/**")
-                .addResourceLocations(uploadDirPath);
-    }
 }
\ No newline at end of file
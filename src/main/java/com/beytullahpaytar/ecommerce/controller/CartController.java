@@ -1,8 +1,11 @@
 package com.beytullahpaytar.ecommerce.controller;
 
 import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.dto.CartItemsDto;
 import com.beytullahpaytar.ecommerce.models.Cart;
 import com.beytullahpaytar.ecommerce.services.CartService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,25 +22,34 @@ public class CartController {
     }
 
     @GetMapping
-    public ResponseEntity<Cart> getCart() {
-        return ResponseEntity.ok(cartService.getCart());
+    public ResponseEntity<Cart> getCart(HttpServletRequest request, HttpServletResponse response) {
+        return ResponseEntity.ok(cartService.getCartWithItems(CartTokens.resolve(request, response)));
     }
 
     @PostMapping
-    public ResponseEntity<String> addItemToCart(@Valid @RequestBody CartItemDto cartItemDto) {
-        cartService.addItemToCart(cartItemDto);
+    public ResponseEntity<String> addItemToCart(@Valid @RequestBody CartItemDto cartItemDto,
+                                                HttpServletRequest request, HttpServletResponse response) {
+        cartService.addItemToCart(CartTokens.resolve(request, response), cartItemDto);
         return ResponseEntity.ok("Item added to cart");
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<String> addItemsToCart(@Valid @RequestBody CartItemsDto cartItemsDto,
+                                                 HttpServletRequest request, HttpServletResponse response) {
+        cartService.addItemsToCart(CartTokens.resolve(request, response), cartItemsDto.items());
+        return ResponseEntity.ok("Items added to cart");
+    }
+
     @DeleteMapping
-    public ResponseEntity<String> clearCart() {
-        cartService.clearCart();
+    public ResponseEntity<String> clearCart(HttpServletRequest request, HttpServletResponse response) {
+        cartService.clearCart(CartTokens.resolve(request, response));
         return ResponseEntity.ok("Cart cleared");
     }
 
     @DeleteMapping("/{cartItemId}")
-    public ResponseEntity<String> removeItemFromCart(@PathVariable Long cartItemId) {
-        cartService.removeItemFromCart(cartItemId);
+    public ResponseEntity<String> removeItemFromCart(@PathVariable Long cartItemId,
+                                                     HttpServletRequest request, HttpServletResponse response) {
+        cartService.removeItemFromCart(CartTokens.resolve(request, response), cartItemId);
         return ResponseEntity.ok("Item removed from cart");
     }
 
@@ -0,0 +1,52 @@
+package com.beytullahpaytar.ecommerce.controller;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the token identifying the caller's cart. Clients can send it either in the
+ * {@value #HEADER} header or the {@value #COOKIE} cookie; callers without a valid token get a new one,
+ * returned in both so either kind of client can keep using it.
+ */
+final class CartTokens {
+
+    static final String HEADER = "X-Cart-Token";
+    static final String COOKIE = "cartToken";
+
+    private static final Pattern VALID_TOKEN = Pattern.compile("[A-Za-z0-9-]{8,64}");
+    private static final Duration COOKIE_MAX_AGE = Duration.ofDays(30);
+
+    private CartTokens() {
+    }
+
+    static String resolve(HttpServletRequest request, HttpServletResponse response) {
+        String token = request.getHeader(HEADER);
+        if (token == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    token = cookie.getValue();
+                }
+            }
+        }
+
+        if (token == null || !VALID_TOKEN.matcher(token).matches()) {
+            token = UUID.randomUUID().toString();
+            ResponseCookie cookie = ResponseCookie.from(COOKIE, token)
+                    .httpOnly(true)
+                    .path("/")
+                    .maxAge(COOKIE_MAX_AGE)
+                    .sameSite("Lax")
+                    .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+        response.setHeader(HEADER, token);
+        return token;
+    }
+}
@@ -1,12 +1,25 @@
 package com.beytullahpaytar.ecommerce.controller;
 
+import com.beytullahpaytar.ecommerce.dto.CacheStatsDto;
 import com.beytullahpaytar.ecommerce.dto.ItemDto;
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemPageDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSearchHitDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSuggestionDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+import com.beytullahpaytar.ecommerce.dto.UpdateStockDto;
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.services.InventoryService;
+import com.beytullahpaytar.ecommerce.services.ItemExportService;
 import com.beytullahpaytar.ecommerce.services.ItemService;
+import com.beytullahpaytar.ecommerce.services.TypeaheadService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,10 +28,17 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final ItemExportService itemExportService;
+    private final InventoryService inventoryService;
+    private final TypeaheadService typeaheadService;
 
     @Autowired
-    public ItemController(ItemService itemService) {
+    public ItemController(ItemService itemService, ItemExportService itemExportService,
+                          InventoryService inventoryService, TypeaheadService typeaheadService) {
         this.itemService = itemService;
+        this.itemExportService = itemExportService;
+        this.inventoryService = inventoryService;
+        this.typeaheadService = typeaheadService;
     }
 
     @GetMapping("/{id}")
@@ -27,10 +47,54 @@ public class ItemController {
     }
 
     @GetMapping
+    public ResponseEntity<ItemPageDto<Item>> getItems(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size,
+                                                      @RequestParam(defaultValue = "id") String sort) {
+        return ResponseEntity.ok(itemService.getItemPage(cursor, size, sort));
+    }
+
+    // Storefront grid: price range and sort order, items without their descriptions
+    @GetMapping("/catalog")
+    public ResponseEntity<ItemPageDto<ItemSummaryDto>> getCatalog(@RequestParam(required = false) Money minPrice,
+                                                                  @RequestParam(required = false) Money maxPrice,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer size,
+                                                                  @RequestParam(defaultValue = "id") String sort,
+                                                                  @RequestParam(defaultValue = "asc") String direction) {
+        return ResponseEntity.ok(itemService.getCatalogPage(new ItemFilter(minPrice, maxPrice), cursor, size, sort,
+                direction));
+    }
+
+    // Full text search over names and descriptions, every word must match, the last one may be incomplete
+    @GetMapping("/search")
+    public ResponseEntity<List<ItemSearchHitDto>> searchItems(@RequestParam String q,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(itemService.searchItems(q, limit));
+    }
+
+    // Item names completing what was typed so far, matched from the start of any word
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ItemSuggestionDto>> suggestItems(@RequestParam String q) {
+        return ResponseEntity.ok(typeaheadService.suggest(q));
+    }
+
+    // Loads the whole catalog, only served when explicitly asked for with ?unpaged=true
+    @GetMapping(params = "unpaged=true")
     public ResponseEntity<List<Item>> getAllItems() {
         return ResponseEntity.ok(itemService.getAllItems());
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportItems() {
+        StreamingResponseBody body = itemExportService::exportItems;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<CacheStatsDto> getItemCacheStats() {
+        return ResponseEntity.ok(itemService.getItemCacheStats());
+    }
+
     @PostMapping
     public ResponseEntity<String> addItem(@Valid @RequestBody ItemDto dto) {
         return itemService.addItem(dto);
@@ -41,4 +105,10 @@ public class ItemController {
         return itemService.updateItem(id, dto);
     }
 
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<String> updateStock(@PathVariable Long id, @Valid @RequestBody UpdateStockDto dto) {
+        inventoryService.setStock(id, dto.stock());
+        return ResponseEntity.ok("Stock updated successfully");
+    }
+
 }
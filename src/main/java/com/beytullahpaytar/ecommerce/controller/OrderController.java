@@ -1,33 +1,69 @@
 package com.beytullahpaytar.ecommerce.controller;
 
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusDto;
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusResultDto;
 import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderPageDto;
 import com.beytullahpaytar.ecommerce.dto.UpdateOrderStatusDto;
 import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import com.beytullahpaytar.ecommerce.services.IdempotencyService;
+import com.beytullahpaytar.ecommerce.services.InvalidRequestException;
 import com.beytullahpaytar.ecommerce.services.OrderService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/order")
 public class OrderController {
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping
-    public String createOrder(@Valid @RequestBody OrderDto orderDto) {
-        orderService.createOrder(orderDto);
+    public String createOrder(@Valid @RequestBody OrderDto orderDto,
+                              @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                              HttpServletRequest request, HttpServletResponse response) {
+        String cartToken = CartTokens.resolve(request, response);
+        if (idempotencyKey == null) {
+            orderService.createOrder(cartToken, orderDto);
+        } else {
+            // Keys are scoped to the cart so different shoppers cannot collide on the same key
+            idempotencyService.execute(cartToken + ":" + idempotencyKey,
+                    () -> orderService.createOrder(cartToken, orderDto).getId());
+        }
         return "Order created successfully";
     }
 
     @GetMapping
+    public ResponseEntity<OrderPageDto<?>> getOrders(@RequestParam(required = false) String orderStatus,
+                                                     @RequestParam(required = false) Instant createdFrom,
+                                                     @RequestParam(required = false) Instant createdTo,
+                                                     @RequestParam(required = false) Long afterId,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(required = false) Integer size,
+                                                     @RequestParam(defaultValue = "false") boolean includeLines) {
+        OrderStatus status = orderStatus == null ? null : OrderStatus.find(orderStatus)
+                .orElseThrow(() -> new InvalidRequestException("Unknown order status: " + orderStatus));
+        OrderFilter filter = new OrderFilter(status, createdFrom, createdTo);
+        return ResponseEntity.ok(orderService.getOrderPage(filter, afterId, page, size, includeLines));
+    }
+
+    // Loads every order with its lines, only served when explicitly asked for with ?unpaged=true
+    @GetMapping(params = "unpaged=true")
     public ResponseEntity<List<Order>> getAllOrders() {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
@@ -44,7 +80,12 @@ public class OrderController {
 
     @PutMapping("/{id}/status")
     public ResponseEntity<String> updateOrderStatus(@PathVariable Long id, @Valid @RequestBody UpdateOrderStatusDto dto) {
-        orderService.updateOrderStatus(id, dto.orderStatus());
+        orderService.updateOrderStatus(id, dto.orderStatus(), dto.expectedStatus());
         return ResponseEntity.ok("Order status updated successfully");
     }
+
+    @PutMapping("/status")
+    public ResponseEntity<BulkOrderStatusResultDto> updateOrderStatuses(@Valid @RequestBody BulkOrderStatusDto dto) {
+        return ResponseEntity.ok(orderService.updateOrderStatuses(dto.orderIds(), dto.orderStatus(), dto.expectedStatus()));
+    }
 }
@@ -0,0 +1,20 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkOrderStatusDto(
+        @NotEmpty
+        @Size(max = 1000)
+        List<@NotNull Long> orderIds,
+
+        @NotNull
+        OrderStatus orderStatus,
+
+        OrderStatus expectedStatus
+) {
+}
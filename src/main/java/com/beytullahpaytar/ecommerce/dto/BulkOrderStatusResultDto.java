@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import java.util.List;
+
+public record BulkOrderStatusResultDto(
+        List<Long> updated,
+        List<Long> skipped // missing, or not in a status that can move to the requested one
+) {
+}
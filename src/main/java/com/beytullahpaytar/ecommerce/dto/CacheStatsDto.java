@@ -0,0 +1,10 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+public record CacheStatsDto(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        double hitRate,
+        long estimatedSize
+) {
+}
@@ -1,9 +1,11 @@
 package com.beytullahpaytar.ecommerce.dto;
 
 
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 public record CartItemDto(
+        @NotNull
         Long itemId,
         @Positive
         int quantity
@@ -0,0 +1,15 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CartItemsDto(
+        @NotEmpty
+        @Size(max = 100)
+        List<@NotNull @Valid CartItemDto> items
+) {
+}
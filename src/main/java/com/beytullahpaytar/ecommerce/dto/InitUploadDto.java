@@ -0,0 +1,14 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public record InitUploadDto(
+        @NotBlank
+        String filename,
+
+        // Total size of the file in bytes
+        @Positive
+        long size
+) {
+}
@@ -1,10 +1,13 @@
 package com.beytullahpaytar.ecommerce.dto;
 
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.math.BigDecimal;
+
 public record ItemDto(
         @NotBlank(message = "Name is required")
         String name,
@@ -14,7 +17,8 @@ public record ItemDto(
 
         @NotNull(message = "Price is required")
         @Positive(message = "Price must be positive")
-        Double price,
+        @Digits(integer = 17, fraction = 2, message = "Price must be in whole cents")
+        BigDecimal price,
 
         @NotBlank(message = "Image URL is required")
         String imageUrl
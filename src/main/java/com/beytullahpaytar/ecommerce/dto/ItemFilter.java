@@ -0,0 +1,10 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.Money;
+
+// Every field is optional, null means no restriction
+public record ItemFilter(
+        Money minPrice, // inclusive
+        Money maxPrice // inclusive
+) {
+}
@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import java.util.List;
+
+public record ItemPageDto<T>(
+        List<T> items,
+        String nextCursor // null when there are no more items
+) {
+}
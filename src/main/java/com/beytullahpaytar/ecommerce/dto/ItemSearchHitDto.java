@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.Item;
+
+public record ItemSearchHitDto(
+        Item item,
+        double score // relevance, only comparable within one result list
+) {
+}
@@ -0,0 +1,18 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import java.util.Optional;
+
+public enum ItemSortKey {
+    ID,
+    PRICE,
+    NAME;
+
+    public static Optional<ItemSortKey> from(String value) {
+        for (ItemSortKey key : values()) {
+            if (key.name().equalsIgnoreCase(value)) {
+                return Optional.of(key);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,7 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+public record ItemSuggestionDto(
+        Long id,
+        String name
+) {
+}
@@ -0,0 +1,13 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.Money;
+
+// An item as listed in the catalog grid, without its description. These are the columns the catalog
+// indexes carry along (see db/schema-updates.sql), so a page can be read from the index alone.
+public record ItemSummaryDto(
+        Long id,
+        String name,
+        Money price,
+        String imageUrl
+) {
+}
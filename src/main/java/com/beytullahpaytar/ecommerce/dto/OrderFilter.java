@@ -0,0 +1,13 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+
+import java.time.Instant;
+
+// Every field is optional, null means no restriction
+public record OrderFilter(
+        OrderStatus orderStatus,
+        Instant createdFrom, // inclusive
+        Instant createdTo // exclusive
+) {
+}
@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import java.util.List;
+
+public record OrderPageDto<T>(
+        List<T> orders,
+        Long nextAfterId // null when there are no more orders
+) {
+}
@@ -0,0 +1,17 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+
+import java.time.Instant;
+
+public record OrderSummaryDto(
+        Long id,
+        String name,
+        String surname,
+        String email,
+        OrderStatus orderStatus,
+        Money totalPrice,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+public record TempFileJanitorStatsDto(
+        long filesScanned,
+        long filesDeleted,
+        long bytesReclaimed,
+        long sweepsCompleted
+) {
+}
@@ -1,9 +1,13 @@
 package com.beytullahpaytar.ecommerce.dto;
 
-import jakarta.validation.constraints.NotBlank;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import jakarta.validation.constraints.NotNull;
 
 public record UpdateOrderStatusDto(
-        @NotBlank
-        String orderStatus
+        @NotNull
+        OrderStatus orderStatus,
+
+        // Optional, the update only applies while the order is still in this status
+        OrderStatus expectedStatus
 ) {
 }
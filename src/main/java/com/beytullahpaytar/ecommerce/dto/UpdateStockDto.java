@@ -0,0 +1,10 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+
+public record UpdateStockDto(
+        // null stops tracking stock for the item
+        @PositiveOrZero
+        Integer stock
+) {
+}
@@ -0,0 +1,13 @@
+package com.beytullahpaytar.ecommerce.dto;
+
+import java.util.List;
+
+public record UploadStatusDto(
+        String uploadId,
+        long size,
+        int chunkSize,
+        int totalChunks,
+        // Indexes of the chunks already stored, a resuming client sends the rest
+        List<Integer> receivedChunks
+) {
+}
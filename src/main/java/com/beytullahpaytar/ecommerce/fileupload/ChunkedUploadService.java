@@ -0,0 +1,212 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.dto.UploadStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Uploads large files in chunks sent as separate requests, so no single request holds a servlet thread
+ * for the whole transfer and the multipart size limits do not apply. Every chunk is written straight
+ * into its place in one part file with positional writes, and recorded only once its SHA-256 matches.
+ * The upload state lives on disk, so a client can ask which chunks arrived and resend the rest, even
+ * across restarts. Completing the upload hands the part file to StorageService as a temp file, exactly
+ * like a file stored through StorageService.store(MultipartFile).
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+    private static final String META_FILE = "upload.properties";
+    private static final String DATA_FILE = "data.part";
+    private static final String CHUNK_MARKER_PREFIX = "chunk-";
+
+    private final StorageService storageService;
+    private final Path uploadsLocation;
+    private final StorageProperties properties;
+
+    public ChunkedUploadService(StorageService storageService, StorageProperties properties) {
+        this.storageService = storageService;
+        this.uploadsLocation = Paths.get(properties.getChunkedUploadLocation());
+        this.properties = properties;
+    }
+
+    public UploadStatusDto initUpload(String filename, long size) {
+        int dot = filename.lastIndexOf('.');
+        String extension = dot < 0 ? "" : filename.substring(dot); // jpg png etc.
+        if (!EXTENSION.matcher(extension).matches()) {
+            throw new InvalidUploadException("Unsupported file name: " + filename);
+        }
+        if (size > properties.getChunkedUploadMaxSize()) {
+            throw new InvalidUploadException("File is larger than " + properties.getChunkedUploadMaxSize() + " bytes");
+        }
+
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        Properties meta = new Properties();
+        meta.setProperty("extension", extension);
+        meta.setProperty("size", String.valueOf(size));
+        meta.setProperty("chunkSize", String.valueOf(properties.getChunkSize()));
+        try {
+            Path directory = Files.createDirectories(uploadsLocation.resolve(uploadId));
+            try (Writer writer = Files.newBufferedWriter(directory.resolve(META_FILE))) {
+                meta.store(writer, null);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to start upload.", e);
+        }
+        return status(uploadId);
+    }
+
+    public UploadStatusDto status(String uploadId) {
+        Upload upload = open(uploadId);
+        List<Integer> received = new ArrayList<>();
+        for (int index = 0; index < upload.totalChunks(); index++) {
+            if (Files.exists(upload.marker(index))) {
+                received.add(index);
+            }
+        }
+        return new UploadStatusDto(uploadId, upload.size(), upload.chunkSize(), upload.totalChunks(), received);
+    }
+
+    /**
+     * Writes chunk index from the request body into the part file. The chunk must have exactly its
+     * expected length and the given SHA-256, otherwise it is not recorded and has to be sent again.
+     * Chunks may arrive in any order and in parallel, each one only touches its own byte range. A resent
+     * chunk drops its marker before overwriting the range, so a bad resend cannot leave a good marker
+     * over bad bytes.
+     */
+    public void writeChunk(String uploadId, int index, InputStream body, String sha256) {
+        Upload upload = open(uploadId);
+        if (index < 0 || index >= upload.totalChunks()) {
+            throw new InvalidUploadException("Chunk index out of range: " + index);
+        }
+        long start = (long) index * upload.chunkSize();
+        long length = Math.min(upload.chunkSize(), upload.size() - start);
+
+        MessageDigest digest = ContentAddressedImageStore.sha256();
+        long written = 0;
+        try {
+            Files.deleteIfExists(upload.marker(index));
+        } catch (IOException e) {
+            throw new StorageException("Failed to store chunk " + index + ".", e);
+        }
+        try (FileChannel channel = FileChannel.open(upload.data(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            int read;
+            while ((read = body.read(buffer.array())) != -1) {
+                if (written + read > length) {
+                    throw new InvalidUploadException("Chunk " + index + " must be " + length + " bytes");
+                }
+                digest.update(buffer.array(), 0, read);
+                buffer.limit(read).position(0);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, start + written + buffer.position());
+                }
+                written += read;
+                buffer.clear();
+            }
+            if (written != length) {
+                throw new InvalidUploadException("Chunk " + index + " must be " + length + " bytes");
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256)) {
+                throw new InvalidUploadException("Checksum mismatch for chunk " + index);
+            }
+            // The marker promises the bytes are on disk, a resumed upload will not send them again
+            channel.force(false);
+            Files.writeString(upload.marker(index), sha256);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store chunk " + index + ".", e);
+        }
+    }
+
+    // Returns the temp file name of the finished upload, to be used like the result of StorageService.store
+    public String completeUpload(String uploadId) {
+        Upload upload = open(uploadId);
+        int missing = upload.totalChunks() - status(uploadId).receivedChunks().size();
+        if (missing > 0) {
+            throw new InvalidUploadException(missing + " chunks of upload " + uploadId + " are missing");
+        }
+
+        String randomName = "tempFile" + uploadId + upload.extension();
+        storageService.store(upload.data(), randomName);
+        FileSystemUtils.deleteRecursively(upload.directory().toFile());
+        return randomName;
+    }
+
+    public void abortUpload(String uploadId) {
+        FileSystemUtils.deleteRecursively(open(uploadId).directory().toFile());
+    }
+
+    @Scheduled(fixedDelayString = "${storage.chunked-upload-cleanup-interval:1h}")
+    public void removeExpiredUploads() {
+        if (!Files.isDirectory(uploadsLocation)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(properties.getChunkedUploadTtl());
+        try (DirectoryStream<Path> uploads = Files.newDirectoryStream(uploadsLocation)) {
+            for (Path directory : uploads) {
+                // The directory changes whenever a chunk is recorded
+                if (Files.getLastModifiedTime(directory).toInstant().isBefore(cutoff)) {
+                    FileSystemUtils.deleteRecursively(directory.toFile());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error removing expired uploads", e);
+        }
+    }
+
+    private Upload open(String uploadId) {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new StorageFileNotFoundException("Unknown upload: " + uploadId);
+        }
+        Path directory = uploadsLocation.resolve(uploadId);
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(META_FILE))) {
+            meta.load(reader);
+        } catch (IOException e) {
+            throw new StorageFileNotFoundException("Unknown upload: " + uploadId, e);
+        }
+        return new Upload(directory, meta.getProperty("extension"), Long.parseLong(meta.getProperty("size")),
+                Integer.parseInt(meta.getProperty("chunkSize")));
+    }
+
+    private record Upload(Path directory, String extension, long size, int chunkSize) {
+
+        int totalChunks() {
+            return (int) ((size + chunkSize - 1) / chunkSize);
+        }
+
+        Path data() {
+            return directory.resolve(DATA_FILE);
+        }
+
+        Path marker(int index) {
+            return directory.resolve(CHUNK_MARKER_PREFIX + index);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.repository.ImageBlobRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores item images once per content, under their SHA-256 sharded by its first two bytes
+ * (ab/cd/abcd....jpg), so identical photos share one file and no directory grows huge. Every item
+ * using an image holds a reference in image_blobs, the file is removed when the last one is released.
+ * Enabled with storage.content-addressed, images stored before keep their flat names and are deleted
+ * directly as before.
+ */
+@Service
+public class ContentAddressedImageStore {
+
+    private static final Pattern IMAGE_KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.[A-Za-z0-9]{1,10}");
+
+    // Temp files written by FileSystemStorageService.store in this mode carry the hash computed during upload
+    private static final Pattern HASHED_TEMP_FILE = Pattern.compile("tempFile([0-9a-f]{64})-[0-9a-f]+(\\.[A-Za-z0-9]{1,10})");
+
+    private final Path rootLocation;
+    private final ImageBlobRepository imageBlobRepository;
+    private final boolean enabled;
+
+    public ContentAddressedImageStore(StorageProperties properties, ImageBlobRepository imageBlobRepository) {
+        this.rootLocation = Paths.get(properties.getLocation());
+        this.imageBlobRepository = imageBlobRepository;
+        this.enabled = properties.isContentAddressed();
+        if (enabled && properties.getBackend() != StorageProperties.Backend.FILESYSTEM) {
+            // Shared files are found, moved and deleted on the local disk
+            throw new StorageException("storage.content-addressed needs the filesystem storage backend.");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isContentAddressed(String imageUrl) {
+        return imageUrl != null && IMAGE_KEY.matcher(imageUrl).matches();
+    }
+
+    /**
+     * Takes a reference for an uploaded temp file, or for the key of a stored image, and returns the key.
+     * Runs in the caller's transaction, the file is put in place by storeFile once it has committed.
+     */
+    public String reference(String uploadName) {
+        // A hashed temp name alone would yield a key, so a forged or already used one is caught here too
+        Path file = rootLocation.resolve(uploadName).normalize();
+        if (!file.startsWith(rootLocation.normalize()) || !Files.isRegularFile(file)) {
+            throw new InvalidUploadException("Image not found: " + uploadName);
+        }
+        String imageKey = isContentAddressed(uploadName) ? uploadName : imageKey(uploadName, file);
+        imageBlobRepository.acquire(imageKey);
+        return imageKey;
+    }
+
+    /**
+     * Moves the temp file to its key, or just drops it when the content is stored already. Called after
+     * the reference committed, so a concurrent release of the last reference has either deleted the file
+     * before, and it is moved in again, or sees the reference and keeps it.
+     */
+    public void storeFile(String uploadName, String imageKey) {
+        if (uploadName.equals(imageKey)) {
+            return;
+        }
+        Path tempFile = rootLocation.resolve(uploadName);
+        Path blob = rootLocation.resolve(imageKey);
+        try {
+            if (Files.exists(blob)) {
+                Files.deleteIfExists(tempFile);
+            } else {
+                Files.createDirectories(blob.getParent());
+                StorageFiles.move(tempFile, blob);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to store image " + uploadName + ".", e);
+        }
+    }
+
+    /**
+     * Drops one reference to the image. The last one deletes the file while its row is still locked,
+     * so a reference to the same content waits and then finds the file gone. Always runs in its own
+     * transaction, it is called after the transaction that dropped the image has committed.
+     * Returns true when the file was removed.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean release(String imageKey) {
+        List<Integer> left = imageBlobRepository.release(imageKey);
+        if (left.isEmpty() || left.getFirst() > 0) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(rootLocation.resolve(imageKey));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete image " + imageKey + ".", e);
+        }
+        imageBlobRepository.deleteUnused(imageKey);
+        return true;
+    }
+
+    private static String imageKey(String tempFilename, Path tempFile) {
+        String hash;
+        String extension;
+        Matcher hashed = HASHED_TEMP_FILE.matcher(tempFilename);
+        if (hashed.matches()) {
+            hash = hashed.group(1);
+            extension = hashed.group(2);
+        } else {
+            // Temp files from other sources, such as chunked uploads, are hashed here
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(tempFile), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new StorageException("Failed to read image " + tempFilename + ".", e);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+            extension = tempFilename.substring(tempFilename.lastIndexOf('.'));
+        }
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + extension;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,11 +8,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
@@ -20,9 +24,11 @@ import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "filesystem", matchIfMissing = true)
 public class FileSystemStorageService implements StorageService {
 
     private final Path rootLocation;
+    private final boolean contentAddressed;
 
     @Autowired
     public FileSystemStorageService(StorageProperties properties) {
@@ -32,6 +38,7 @@ public class FileSystemStorageService implements StorageService {
         }
 
         this.rootLocation = Paths.get(properties.getLocation());
+        this.contentAddressed = properties.isContentAddressed();
     }
 
     @Override
@@ -43,7 +50,8 @@ public class FileSystemStorageService implements StorageService {
 
             String originalFilename = Objects.requireNonNull(file.getOriginalFilename());
             String extension = originalFilename.substring(originalFilename.lastIndexOf('.')); // jpg png etc.
-            String randomName = "tempFile" + UUID.randomUUID().toString().replace("-", "") + extension;
+            String randomId = UUID.randomUUID().toString().replace("-", "");
+            String randomName = "tempFile" + randomId + extension;
 
             Path destinationFile = this.rootLocation.resolve(
                             Paths.get(Objects.requireNonNull(randomName)))
@@ -55,17 +63,39 @@ public class FileSystemStorageService implements StorageService {
                         "Cannot store file outside current directory.");
             }
 
-            try (InputStream inputStream = file.getInputStream()) {
+            if (!contentAddressed) {
+                try (InputStream inputStream = file.getInputStream()) {
+                    Files.copy(inputStream, destinationFile,
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                return randomName;
+            }
+
+            // Hash while copying and put the hash in the temp name, so promoting the image never reads it again
+            MessageDigest digest = ContentAddressedImageStore.sha256();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
                 Files.copy(inputStream, destinationFile,
                         StandardCopyOption.REPLACE_EXISTING);
             }
-            return randomName;
+            String hashedName = "tempFile" + HexFormat.of().formatHex(digest.digest()) + "-" + randomId + extension;
+            Files.move(destinationFile, destinationFile.resolveSibling(hashedName), StandardCopyOption.REPLACE_EXISTING);
+            return hashedName;
         }
         catch (IOException e) {
             throw new StorageException("Failed to store file. ", e);
         }
     }
 
+    @Override
+    public void store(Path source, String filename) {
+        try {
+            StorageFiles.move(source, resolve(filename));
+        }
+        catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename + ".", e);
+        }
+    }
+
     @Override
     public Stream<Path> loadAll() {
         try {
@@ -84,6 +114,12 @@ public class FileSystemStorageService implements StorageService {
         return rootLocation.resolve(filename);
     }
 
+    @Override
+    public boolean exists(String filename) {
+        Path file = rootLocation.resolve(filename).normalize().toAbsolutePath();
+        return file.startsWith(rootLocation.toAbsolutePath().normalize()) && Files.isRegularFile(file);
+    }
+
     @Override
     public Resource loadAsResource(String filename) {
         try {
@@ -103,6 +139,24 @@ public class FileSystemStorageService implements StorageService {
         }
     }
 
+    @Override
+    public void move(String source, String target) {
+        try {
+            StorageFiles.move(resolve(source), resolve(target));
+        }
+        catch (IOException e) {
+            throw new StorageException("Failed to rename file " + source + ".", e);
+        }
+    }
+
+    private Path resolve(String filename) {
+        Path file = rootLocation.resolve(filename).normalize().toAbsolutePath();
+        if (!file.startsWith(rootLocation.toAbsolutePath().normalize())) {
+            throw new StorageException("Cannot store file outside current directory.");
+        }
+        return file;
+    }
+
     @Override
     public void deleteAll() {
         FileSystemUtils.deleteRecursively(rootLocation.toFile());
@@ -119,24 +173,6 @@ public class FileSystemStorageService implements StorageService {
         }
     }
 
-    public void deleteTempFiles() {
-        try {
-            Files.walk(rootLocation)
-                    .filter(Files::isRegularFile)
-                    .forEach(file -> {
-                        if (file.getFileName().toString().startsWith("tempFile")) {
-                            try {
-                                Files.delete(file);
-                            } catch (IOException e) {
-                                System.err.println("Error deleting file: " + file);
-                            }
-                        }
-                    });
-        } catch (IOException e) {
-            System.err.println("Error accessing the directory to delete temp files.");
-        }
-    }
-
     @Override
     public void init() {
         try {
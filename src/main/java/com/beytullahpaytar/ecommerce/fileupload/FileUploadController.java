@@ -1,16 +1,27 @@
 package com.beytullahpaytar.ecommerce.fileupload;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.beytullahpaytar.ecommerce.dto.InitUploadDto;
+import com.beytullahpaytar.ecommerce.dto.TempFileJanitorStatsDto;
+import com.beytullahpaytar.ecommerce.dto.UploadStatusDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
 
 
@@ -18,10 +29,20 @@ import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBui
 public class FileUploadController {
 
     private final StorageService storageService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final ImageServingService imageServingService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final TempFileJanitor tempFileJanitor;
 
     @Autowired
-    public FileUploadController(StorageService storageService) {
+    public FileUploadController(StorageService storageService, ChunkedUploadService chunkedUploadService,
+                                ImageServingService imageServingService,
+                                ImageDerivativeService imageDerivativeService, TempFileJanitor tempFileJanitor) {
         this.storageService = storageService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.imageServingService = imageServingService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.tempFileJanitor = tempFileJanitor;
     }
 
     @GetMapping("/")
@@ -37,9 +58,14 @@ public class FileUploadController {
 
     @GetMapping("/files/{filename:.+}")
     @ResponseBody
-    public ResponseEntity<Resource> serveFile(@PathVariable String filename) {
+    public ResponseEntity<Resource> serveFile(@PathVariable String filename,
+                                              @RequestParam(required = false) String size) {
 
-        Resource file = storageService.loadAsResource(filename);
+        // A derivative once it has been generated, the original until then
+        Resource file = size == null ? storageService.loadAsResource(filename)
+                : imageDerivativeService.find(filename, variant(size))
+                        .<Resource>map(FileSystemResource::new)
+                        .orElseGet(() -> storageService.loadAsResource(filename));
 
         if (file == null)
             return ResponseEntity.notFound().build();
@@ -48,6 +74,21 @@ public class FileUploadController {
                 "attachment; filename=\"" + file.getFilename() + "\"").body(file);
     }
 
+    // Inline image serving with ETag, Last-Modified, Range and long-lived caching for stored names.
+    // Content-addressed images live in shard directories, so the name may contain slashes.
+    @GetMapping("/upload-dir/{*filename}")
+    public void serveImage(@PathVariable String filename, @RequestParam(required = false) String size,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageServingService.serve(filename.replaceFirst("^/", ""), size == null ? null : variant(size),
+                request, response);
+    }
+
+    // An unknown size is a bad request, not a missing file
+    private static ImageVariant variant(String size) {
+        return ImageVariant.from(size)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown image size: " + size));
+    }
+
     @PostMapping("/api/upload")
     public ResponseEntity<Map<String, String>> handleFileUpload(@RequestParam("file") MultipartFile file) {
 
@@ -56,6 +97,43 @@ public class FileUploadController {
         return ResponseEntity.ok(Map.of("imageUrl", filename));
     }
 
+    // Chunked uploads for large files: init, PUT every chunk as a raw body, then complete.
+    // GET returns the chunks already received, so an interrupted upload only resends the rest.
+
+    @PostMapping("/api/upload/chunked")
+    public ResponseEntity<UploadStatusDto> initChunkedUpload(@Valid @RequestBody InitUploadDto dto) {
+        return ResponseEntity.ok(chunkedUploadService.initUpload(dto.filename(), dto.size()));
+    }
+
+    @GetMapping("/api/upload/chunked/{uploadId}")
+    public ResponseEntity<UploadStatusDto> getChunkedUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.status(uploadId));
+    }
+
+    @PutMapping(value = "/api/upload/chunked/{uploadId}/chunks/{index}", consumes = "application/octet-stream")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId, @PathVariable int index,
+                                         @RequestHeader("X-Chunk-Sha256") String sha256,
+                                         InputStream body) {
+        chunkedUploadService.writeChunk(uploadId, index, body, sha256);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/api/upload/chunked/{uploadId}/complete")
+    public ResponseEntity<Map<String, String>> completeChunkedUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(Map.of("imageUrl", chunkedUploadService.completeUpload(uploadId)));
+    }
+
+    @DeleteMapping("/api/upload/chunked/{uploadId}")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        chunkedUploadService.abortUpload(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/api/upload/janitor-stats")
+    public ResponseEntity<TempFileJanitorStatsDto> getTempFileJanitorStats() {
+        return ResponseEntity.ok(tempFileJanitor.getStats());
+    }
+
     @ExceptionHandler(StorageFileNotFoundException.class)
     public ResponseEntity<?> handleStorageFileNotFound() {
         return ResponseEntity.notFound().build();
@@ -0,0 +1,155 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the ImageVariant derivatives of stored images in the background. Work runs on a fixed pool
+ * with a bounded queue, and when the queue is full the caller renders the image itself, so a burst of
+ * uploads slows down instead of piling up unbounded work. Derivatives live apart from the originals,
+ * as <variant>/<image name>.jpg (or .png for images with transparency), and appear atomically once complete.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final Path rootLocation;
+    private final Path derivativeLocation;
+    private final ThreadPoolExecutor workers;
+
+    public ImageDerivativeService(StorageProperties properties) {
+        this.rootLocation = Paths.get(properties.getLocation()).toAbsolutePath().normalize();
+        this.derivativeLocation = Paths.get(properties.getDerivativeLocation()).toAbsolutePath().normalize();
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getDerivativeWorkers(), properties.getDerivativeWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getDerivativeQueueCapacity()),
+                task -> {
+                    Thread thread = new Thread(task, "image-derivatives-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void generate(String filename) {
+        workers.execute(() -> {
+            try {
+                createDerivatives(filename);
+            } catch (Exception e) {
+                log.warn("Could not create derivatives of {}", filename, e);
+            }
+        });
+    }
+
+    // The derivative when it has been generated, callers fall back to the original otherwise
+    public Optional<Path> find(String filename, ImageVariant variant) {
+        for (String format : new String[]{"jpg", "png"}) {
+            Path derivative = derivativePath(filename, variant, format);
+            if (derivative.startsWith(derivativeLocation) && Files.isRegularFile(derivative)) {
+                return Optional.of(derivative);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void delete(String filename) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            for (String format : new String[]{"jpg", "png"}) {
+                try {
+                    Files.deleteIfExists(derivativePath(filename, variant, format));
+                } catch (IOException e) {
+                    log.warn("Could not delete {} derivative of {}", variant, filename, e);
+                }
+            }
+        }
+    }
+
+    void createDerivatives(String filename) throws IOException {
+        Path original = rootLocation.resolve(filename).normalize();
+        if (!original.startsWith(rootLocation) || !Files.isRegularFile(original)) {
+            return;
+        }
+        BufferedImage image = ImageIO.read(original.toFile());
+        if (image == null) {
+            return; // not an image format ImageIO can read
+        }
+        boolean transparent = image.getColorModel().hasAlpha();
+        String format = transparent ? "png" : "jpg";
+        for (ImageVariant variant : ImageVariant.values()) {
+            Path target = derivativePath(filename, variant, format);
+            if (Files.exists(target)) {
+                continue; // shared content-addressed image, already done
+            }
+            Files.createDirectories(target.getParent());
+            // Unique per run, the same shared image may be rendered twice at once
+            Path partial = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+            write(scale(image, variant.getMaxDimension(), transparent), format, variant.getQuality(), partial);
+            StorageFiles.move(partial, target);
+        }
+    }
+
+    private Path derivativePath(String filename, ImageVariant variant, String format) {
+        return derivativeLocation.resolve(variant.name().toLowerCase()).resolve(filename + "." + format).normalize();
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxDimension, boolean transparent) {
+        double factor = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height,
+                transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void write(BufferedImage image, String format, float quality, Path target) throws IOException {
+        if (format.equals("png")) {
+            ImageIO.write(image, "png", target.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        Files.deleteIfExists(target);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,188 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Serves stored images with validators and caching headers. ETags are content hashes, remembered per
+ * file until its size or modification time changes. Stored names are random and never reused, so
+ * anything but a temp file is cached as immutable. Bodies go out through Tomcat's sendfile when the
+ * connector offers it, otherwise through FileChannel.transferTo, never through a heap copy of the file.
+ * With a storage backend other than the local disk, images are streamed through from StorageService.
+ */
+@Service
+public class ImageServingService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private final Path rootLocation;
+    private final boolean local;
+    private final StorageService storageService;
+    private final ImageDerivativeService derivativeService;
+
+    // File -> ETag of the content it had at that size and modification time
+    private final Cache<Path, FileTag> etags;
+
+    public ImageServingService(StorageProperties properties, StorageService storageService,
+                               ImageDerivativeService derivativeService) {
+        this.rootLocation = Paths.get(properties.getLocation()).toAbsolutePath().normalize();
+        this.local = properties.getBackend() == StorageProperties.Backend.FILESYSTEM;
+        this.storageService = storageService;
+        this.derivativeService = derivativeService;
+        this.etags = Caffeine.newBuilder()
+                .maximumSize(properties.getEtagCacheMaximumSize())
+                .build();
+    }
+
+    /**
+     * Serves the image, or its derivative for the given variant. Until the derivative exists the original
+     * is sent instead, marked for revalidation so caches pick up the derivative once it is there.
+     */
+    public void serve(String filename, ImageVariant variant, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (!local) {
+            serveFromStorage(filename, request, response);
+            return;
+        }
+        Path file = rootLocation.resolve(filename).normalize();
+        if (!file.startsWith(rootLocation) || !Files.isRegularFile(file)) {
+            throw new StorageFileNotFoundException("Could not read file: " + filename);
+        }
+        boolean immutable = !filename.startsWith("tempFile");
+        if (variant != null) {
+            Path derivative = derivativeService.find(filename, variant).orElse(null);
+            immutable &= derivative != null;
+            if (derivative != null) {
+                file = derivative;
+            }
+        }
+        String contentName = file.getFileName().toString();
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(file, length, lastModified);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE : REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Answers 304 (or 412) by itself and sets ETag and Last-Modified either way
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = range(request, etag, lastModified);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(contentName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the byte range itself after the servlet returns, straight from the file to the socket
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    // No local file to send or validate, and no derivatives, the stored object is copied through as it is
+    private void serveFromStorage(String filename, HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Resource resource = storageService.loadAsResource(filename);
+        try (InputStream in = resource.getInputStream()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, filename.startsWith("tempFile") ? REVALIDATE : IMMUTABLE);
+            response.setContentType(MediaTypeFactory.getMediaType(filename)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            if (resource.contentLength() >= 0) {
+                response.setContentLengthLong(resource.contentLength());
+            }
+            if (!"HEAD".equals(request.getMethod())) {
+                in.transferTo(response.getOutputStream());
+            }
+        }
+    }
+
+    // Only a single range is served, anything else (including an outdated If-Range) gets the whole file
+    private static HttpRange range(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        try {
+            if (ifRange != null && (ifRange.startsWith("\"") || ifRange.startsWith("W/")
+                    ? !ifRange.equals(etag)
+                    : request.getDateHeader(HttpHeaders.IF_RANGE) != lastModified / 1000 * 1000)) {
+                return null;
+            }
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.getFirst() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String etag(Path file, long length, long lastModified) throws IOException {
+        FileTag tag = etags.getIfPresent(file);
+        if (tag == null || tag.length() != length || tag.lastModified() != lastModified) {
+            try (InputStream in = Files.newInputStream(file)) {
+                tag = new FileTag(length, lastModified, "\"" + DigestUtils.md5DigestAsHex(in) + "\"");
+            }
+            etags.put(file, tag);
+        }
+        return tag.etag();
+    }
+
+    private record FileTag(long length, long lastModified, String etag) {
+    }
+}
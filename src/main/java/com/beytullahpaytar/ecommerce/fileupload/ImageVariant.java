@@ -0,0 +1,32 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import lombok.Getter;
+
+import java.util.Optional;
+
+// Derivatives generated for every item image, each fitted into a square box and never upscaled
+@Getter
+public enum ImageVariant {
+    THUMBNAIL(200, 0.8f),
+    MEDIUM(600, 0.8f),
+    COMPRESSED(1600, 0.7f);
+
+    private final int maxDimension;
+
+    // JPEG quality, images with transparency are written as PNG instead
+    private final float quality;
+
+    ImageVariant(int maxDimension, float quality) {
+        this.maxDimension = maxDimension;
+        this.quality = quality;
+    }
+
+    public static Optional<ImageVariant> from(String value) {
+        for (ImageVariant variant : values()) {
+            if (variant.name().equalsIgnoreCase(value)) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,9 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+// An upload the client has to fix or resend, answered with 400 and this message
+public class InvalidUploadException extends RuntimeException {
+
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,427 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps files in an S3 compatible bucket, selected with storage.backend=s3, so every node of the shop
+ * sees the same images. Requests go through one JDK HTTP client, which keeps its connections alive and
+ * reuses them, and are signed with AWS Signature Version 4. Files larger than one part are sent as a
+ * multipart upload with several parts in flight at once. Renames are server side copies, the bytes never
+ * pass through the application.
+ */
+@Service
+@ConditionalOnProperty(prefix = "storage", name = "backend", havingValue = "s3")
+public class S3StorageService implements StorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(S3StorageService.class);
+
+    // Bodies are not hashed into the signature, so parts go out straight from their buffer
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>(.*?)</UploadId>");
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>");
+    private static final Pattern NEXT_TOKEN = Pattern.compile("<NextContinuationToken>(.*?)</NextContinuationToken>");
+
+    private final StorageProperties.S3 s3;
+    private final URI endpoint;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    public S3StorageService(StorageProperties properties) {
+        this.s3 = properties.getS3();
+        if (s3.getBucket() == null || s3.getBucket().isBlank()) {
+            throw new StorageException("storage.s3.bucket must be set for the s3 backend.");
+        }
+        this.endpoint = URI.create(s3.getEndpoint().replaceFirst("/+$", ""));
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(s3.getUploadConcurrency(), task -> {
+            Thread thread = new Thread(task, "s3-storage-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // HTTP/1.1 so parallel parts use parallel connections, which the client pools between requests
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(s3.getRequestTimeout())
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public void init() {
+        // The bucket is provisioned with the store, only check that it is reachable
+        HttpResponse<byte[]> response = send(request("HEAD", "", Map.of(), Map.of(), null));
+        if (response.statusCode() / 100 != 2) {
+            throw new StorageException("Could not initialize storage, bucket " + s3.getBucket()
+                    + " answered HTTP " + response.statusCode());
+        }
+        log.info("Storing files in bucket {} at {}", s3.getBucket(), endpoint);
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file.");
+        }
+        String originalFilename = Objects.requireNonNull(file.getOriginalFilename());
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.')); // jpg png etc.
+        String randomName = "tempFile" + UUID.randomUUID().toString().replace("-", "") + extension;
+        try (InputStream in = file.getInputStream()) {
+            upload(randomName, in, file.getSize());
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file. ", e);
+        }
+        return randomName;
+    }
+
+    @Override
+    public void store(Path source, String filename) {
+        try {
+            try (InputStream in = Files.newInputStream(source)) {
+                upload(filename, in, Files.size(source));
+            }
+            Files.delete(source);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename + ".", e);
+        }
+    }
+
+    @Override
+    public Stream<Path> loadAll() {
+        return listKeys().stream().map(Paths::get);
+    }
+
+    // Objects have no local path, this is just the key
+    @Override
+    public Path load(String filename) {
+        return Paths.get(filename);
+    }
+
+    @Override
+    public boolean exists(String filename) {
+        HttpResponse<byte[]> response = send(request("HEAD", filename, Map.of(), Map.of(), null));
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new StorageException("Could not look up file: " + filename + ", HTTP " + response.statusCode());
+        }
+        return true;
+    }
+
+    @Override
+    public Resource loadAsResource(String filename) {
+        HttpResponse<InputStream> response = send(request("GET", filename, Map.of(), Map.of(), null),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            closeQuietly(response.body());
+            if (response.statusCode() == 404) {
+                throw new StorageFileNotFoundException("Could not read file: " + filename);
+            }
+            throw new StorageException("Could not read file: " + filename + ", HTTP " + response.statusCode());
+        }
+        String name = filename.substring(filename.lastIndexOf('/') + 1);
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        // Streamed straight from the store, it can be read once
+        return new InputStreamResource(response.body()) {
+            @Override
+            public String getFilename() {
+                return name;
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+        };
+    }
+
+    @Override
+    public void move(String source, String target) {
+        String copySource = "/" + s3.getBucket() + "/" + encodePath(source);
+        HttpResponse<byte[]> response = send(request("PUT", target, Map.of(),
+                Map.of("x-amz-copy-source", copySource), new byte[0]));
+        check(response, "Rename of " + source);
+        delete(source);
+    }
+
+    @Override
+    public void deleteAll() {
+        for (String key : listKeys()) {
+            delete(key);
+        }
+    }
+
+    @Override
+    public void delete(String filename) {
+        HttpResponse<byte[]> response = send(request("DELETE", filename, Map.of(), Map.of(), null));
+        if (response.statusCode() != 404) {
+            check(response, "Delete of " + filename);
+        }
+    }
+
+    private void upload(String key, InputStream in, long size) throws IOException {
+        if (size <= s3.getPartSize()) {
+            byte[] body = in.readNBytes((int) size);
+            check(send(request("PUT", key, Map.of(), Map.of(), body)), "Upload of " + key);
+            return;
+        }
+
+        HttpResponse<byte[]> created = send(request("POST", key, Map.of("uploads", ""), Map.of(), new byte[0]));
+        check(created, "Upload of " + key);
+        Matcher uploadIdMatcher = UPLOAD_ID.matcher(new String(created.body(), StandardCharsets.UTF_8));
+        if (!uploadIdMatcher.find()) {
+            throw new StorageException("Upload of " + key + " returned no upload id.");
+        }
+        String uploadId = unescapeXml(uploadIdMatcher.group(1));
+
+        // At most uploadConcurrency parts are buffered and in flight, the next one is read while they go out
+        Semaphore inFlight = new Semaphore(s3.getUploadConcurrency());
+        List<CompletableFuture<String>> parts = new ArrayList<>();
+        try {
+            byte[] part;
+            while ((part = in.readNBytes(s3.getPartSize())).length > 0) {
+                inFlight.acquire();
+                if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    inFlight.release();
+                    break; // joined below, which throws the failure
+                }
+                int partNumber = parts.size() + 1;
+                HttpRequest request = request("PUT", key,
+                        Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId), Map.of(), part);
+                parts.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                        .whenComplete((response, error) -> inFlight.release())
+                        .thenApply(response -> {
+                            check(response, "Upload of part " + partNumber + " of " + key);
+                            return response.headers().firstValue("ETag").orElseThrow(() ->
+                                    new StorageException("Upload of part " + partNumber + " of " + key + " returned no ETag."));
+                        }));
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < parts.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(parts.get(i).join()).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            check(send(request("POST", key, Map.of("uploadId", uploadId), Map.of(),
+                    complete.toString().getBytes(StandardCharsets.UTF_8))), "Upload of " + key);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            abortUpload(key, uploadId);
+            if (e instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new StorageException("Failed to upload " + key + ".", e instanceof CompletionException ? e.getCause() : e);
+        }
+    }
+
+    // Frees the parts already stored, they would otherwise be kept (and billed) until a bucket lifecycle rule runs
+    private void abortUpload(String key, String uploadId) {
+        try {
+            send(request("DELETE", key, Map.of("uploadId", uploadId), Map.of(), null));
+        } catch (StorageException e) {
+            log.warn("Could not abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    private List<String> listKeys() {
+        List<String> keys = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            HttpResponse<byte[]> response = send(request("GET", "", query, Map.of(), null));
+            check(response, "Listing of bucket " + s3.getBucket());
+            String body = new String(response.body(), StandardCharsets.UTF_8);
+            Matcher key = KEY.matcher(body);
+            while (key.find()) {
+                keys.add(unescapeXml(key.group(1)));
+            }
+            Matcher next = NEXT_TOKEN.matcher(body);
+            continuationToken = next.find() ? unescapeXml(next.group(1)) : null;
+        } while (continuationToken != null);
+        return keys;
+    }
+
+    private HttpRequest request(String method, String key, Map<String, String> query,
+                                Map<String, String> headers, byte[] body) {
+        String host = s3.isPathStyle() ? endpoint.getHost() : s3.getBucket() + "." + endpoint.getHost();
+        int defaultPort = "https".equals(endpoint.getScheme()) ? 443 : 80;
+        if (endpoint.getPort() != -1 && endpoint.getPort() != defaultPort) {
+            host += ":" + endpoint.getPort(); // the client sends the Host header the same way
+        }
+        String path = (s3.isPathStyle() ? "/" + s3.getBucket() : "") + "/" + encodePath(key);
+        String canonicalQuery = new TreeMap<>(query).entrySet().stream()
+                .map(entry -> encode(entry.getKey()) + "=" + encode(entry.getValue()))
+                .collect(Collectors.joining("&"));
+        String amzDate = AMZ_DATE.format(Instant.now());
+
+        TreeMap<String, String> signedHeaders = new TreeMap<>();
+        signedHeaders.put("host", host);
+        signedHeaders.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        signedHeaders.put("x-amz-date", amzDate);
+        headers.forEach((name, value) -> signedHeaders.put(name.toLowerCase(Locale.ROOT), value.trim()));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint.getScheme() + "://" + host + path
+                        + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery)))
+                .timeout(s3.getRequestTimeout())
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        signedHeaders.forEach((name, value) -> {
+            if (!name.equals("host")) { // set by the client itself
+                builder.header(name, value);
+            }
+        });
+        if (s3.getAccessKey() != null) {
+            builder.header("Authorization", authorization(method, path, canonicalQuery, signedHeaders, amzDate));
+        }
+        return builder.build();
+    }
+
+    // AWS Signature Version 4, see https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-header-based-auth.html
+    private String authorization(String method, String path, String canonicalQuery,
+                                 TreeMap<String, String> signedHeaders, String amzDate) {
+        String headerNames = String.join(";", signedHeaders.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + signedHeaders.entrySet().stream()
+                        .map(header -> header.getKey() + ":" + header.getValue() + "\n")
+                        .collect(Collectors.joining())
+                + "\n" + headerNames + "\n" + UNSIGNED_PAYLOAD;
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + s3.getRegion() + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(ContentAddressedImageStore.sha256()
+                        .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] signingKey = ("AWS4" + s3.getSecretKey()).getBytes(StandardCharsets.UTF_8);
+        for (String part : new String[]{date, s3.getRegion(), "s3", "aws4_request"}) {
+            signingKey = hmac(signingKey, part);
+        }
+        return "AWS4-HMAC-SHA256 Credential=" + s3.getAccessKey() + "/" + scope
+                + ", SignedHeaders=" + headerNames
+                + ", Signature=" + HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) {
+        return send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return httpClient.send(request, bodyHandler);
+        } catch (IOException e) {
+            throw new StorageException("Request to " + request.uri() + " failed.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted during request to " + request.uri() + ".", e);
+        }
+    }
+
+    // Copies and completed multipart uploads may fail after the 200 status was sent, with an error body
+    private static void check(HttpResponse<byte[]> response, String action) {
+        String body = new String(response.body(), StandardCharsets.UTF_8).strip();
+        if (body.startsWith("<?xml")) {
+            body = body.substring(body.indexOf("?>") + 2).strip();
+        }
+        if (response.statusCode() / 100 != 2 || body.startsWith("<Error>")) {
+            throw new StorageException(action + " failed with HTTP " + response.statusCode() + ": " + body);
+        }
+    }
+
+    private static String encodePath(String key) {
+        return Arrays.stream(key.split("/", -1))
+                .map(S3StorageService::encode)
+                .collect(Collectors.joining("/"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // nothing left to read from it
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,29 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public final class StorageFiles {
+
+    private StorageFiles() {
+    }
+
+    /**
+     * Moves a stored file with a single rename, so the target either does not exist yet or is complete.
+     * Across file systems the file is copied next to the target first and then renamed into place,
+     * a crash never leaves a half-written file under the target name.
+     */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path partial = target.resolveSibling(target.getFileName() + ".part");
+            Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(source);
+        }
+    }
+}
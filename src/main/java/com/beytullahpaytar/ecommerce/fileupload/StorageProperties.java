@@ -5,11 +5,78 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @Setter
 @Getter
 @ConfigurationProperties("storage")
 public class StorageProperties {
 
+    // Where StorageService keeps uploaded files, see FileSystemStorageService and S3StorageService
+    private Backend backend = Backend.FILESYSTEM;
+
     private String location = "upload-dir";
 
-}
\ No newline at end of file
+    private final S3 s3 = new S3();
+
+    private long etagCacheMaximumSize = 10_000;
+
+    // Uploaded temp files never promoted to an item image are removed once this old
+    private Duration tempFileMaxAge = Duration.ofHours(24);
+
+    // Directory entries the temp file janitor looks at per tick, it resumes where it stopped on the next one
+    private int tempFileSweepBudget = 500;
+
+    // Thumbnails and compressed variants of item images, see ImageDerivativeService
+    private String derivativeLocation = "upload-derivatives";
+
+    private int derivativeWorkers = 2;
+
+    // Images waiting for derivatives, once full the uploading request renders its own
+    private int derivativeQueueCapacity = 100;
+
+    // Store item images by content hash and share identical ones, see ContentAddressedImageStore
+    private boolean contentAddressed = false;
+
+    // Chunked uploads in progress, kept out of location so they are never listed or served
+    private String chunkedUploadLocation = "upload-parts";
+
+    private int chunkSize = 5 * 1024 * 1024;
+
+    private long chunkedUploadMaxSize = 1024L * 1024 * 1024;
+
+    // Uploads not completed within this time are removed
+    private Duration chunkedUploadTtl = Duration.ofHours(24);
+
+    public enum Backend {
+        FILESYSTEM,
+        S3
+    }
+
+    // Any S3 compatible object store, such as AWS S3 or MinIO
+    @Setter
+    @Getter
+    public static class S3 {
+
+        private String endpoint = "http://localhost:9000";
+
+        private String region = "us-east-1";
+
+        private String bucket;
+
+        private String accessKey;
+
+        private String secretKey;
+
+        // Bucket in the path (endpoint/bucket/key) instead of the host name, as most self-hosted stores expect
+        private boolean pathStyle = true;
+
+        // Larger files are sent as a multipart upload in parts of this size, S3 needs at least 5 MiB
+        private int partSize = 8 * 1024 * 1024;
+
+        // Parts of one upload sent at the same time, also the size of the HTTP client's thread pool
+        private int uploadConcurrency = 4;
+
+        private Duration requestTimeout = Duration.ofSeconds(30);
+    }
+}
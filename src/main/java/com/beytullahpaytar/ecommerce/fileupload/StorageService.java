@@ -6,22 +6,33 @@ import org.springframework.web.multipart.MultipartFile;
 import java.nio.file.Path;
 import java.util.stream.Stream;
 
+/**
+ * Where uploaded files and item images are kept, selected with storage.backend. Files are addressed by
+ * name only, callers never see where the backend puts them.
+ */
 public interface StorageService {
 
     void init();
 
     String store(MultipartFile file);
 
+    // Stores a local file, such as a completed chunked upload, under the given name and removes the local copy
+    void store(Path source, String filename);
+
     Stream<Path> loadAll();
 
     Path load(String filename);
 
+    // Whether a file is stored under the name, used to check an upload before anything refers to it
+    boolean exists(String filename);
+
     Resource loadAsResource(String filename);
 
+    // Renames a stored file, used to promote an uploaded temp file to an item image
+    void move(String source, String target);
+
     void deleteAll();
 
     void delete(String filename);
 
-    void deleteTempFiles();
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.dto.TempFileJanitorStatsDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes uploaded temp files that were never promoted to an item image. Only files older than
+ * storage.temp-file-max-age go, so uploads still in flight on any instance are left alone. Each tick
+ * looks at a bounded number of entries of the upload directory and the next tick continues from there,
+ * a sweep over a large directory is spread out instead of stalling on one long walk.
+ */
+@Component
+public class TempFileJanitor {
+
+    private static final Logger log = LoggerFactory.getLogger(TempFileJanitor.class);
+
+    private final Path rootLocation;
+    private final StorageProperties properties;
+
+    // Position in the current sweep, reopened once a sweep has gone through the whole directory
+    private DirectoryStream<Path> sweep;
+    private Iterator<Path> cursor;
+
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong sweepsCompleted = new AtomicLong();
+
+    public TempFileJanitor(StorageProperties properties) {
+        this.rootLocation = Paths.get(properties.getLocation());
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${storage.temp-file-sweep-interval:1m}")
+    public synchronized void sweep() {
+        Instant cutoff = Instant.now().minus(properties.getTempFileMaxAge());
+        try {
+            for (int budget = properties.getTempFileSweepBudget(); budget > 0; budget--) {
+                if (cursor == null) {
+                    if (!Files.isDirectory(rootLocation)) {
+                        return;
+                    }
+                    sweep = Files.newDirectoryStream(rootLocation, "tempFile*");
+                    cursor = sweep.iterator();
+                }
+                if (!cursor.hasNext()) {
+                    closeSweep();
+                    long sweeps = sweepsCompleted.incrementAndGet();
+                    log.debug("Temp file sweep {} done, {} files and {} bytes reclaimed so far",
+                            sweeps, filesDeleted.get(), bytesReclaimed.get());
+                    return; // the next sweep starts on the next tick
+                }
+                filesScanned.incrementAndGet();
+                deleteIfExpired(cursor.next(), cutoff);
+            }
+        } catch (IOException | RuntimeException e) {
+            // DirectoryIteratorException included, start over on the next tick
+            log.warn("Temp file sweep of {} failed", rootLocation, e);
+            closeSweep();
+        }
+    }
+
+    private void deleteIfExpired(Path file, Instant cutoff) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)
+                    && Files.deleteIfExists(file)) {
+                filesDeleted.incrementAndGet();
+                bytesReclaimed.addAndGet(attributes.size());
+            }
+        } catch (NoSuchFileException e) {
+            // promoted or removed since the directory was listed
+        }
+    }
+
+    public TempFileJanitorStatsDto getStats() {
+        return new TempFileJanitorStatsDto(filesScanned.get(), filesDeleted.get(), bytesReclaimed.get(),
+                sweepsCompleted.get());
+    }
+
+    @PreDestroy
+    public synchronized void closeSweep() {
+        if (sweep != null) {
+            try {
+                sweep.close();
+            } catch (IOException e) {
+                log.debug("Could not close temp file sweep", e);
+            }
+        }
+        sweep = null;
+        cursor = null;
+    }
+}
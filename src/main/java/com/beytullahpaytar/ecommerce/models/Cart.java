@@ -9,15 +9,18 @@ import lombok.Setter;
 import java.util.ArrayList;
 import java.util.List;
 
+// At most one open cart per token: the partial unique index is created in db/schema-updates.sql, after open
+// carts duplicated before it existed have been merged
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_token", columnList = "token"))
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carts_seq")
+    @SequenceGenerator(name = "carts_seq", sequenceName = "carts_seq", allocationSize = 50)
     private Long id;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -25,4 +28,8 @@ public class Cart {
 
     @Column(nullable = false)
     private Boolean isCompleted = false;
+
+    // Identifies the shopper the cart belongs to, sent by the client as a cookie or header
+    @Column(length = 64)
+    private String token;
 }
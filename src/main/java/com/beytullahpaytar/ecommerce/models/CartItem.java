@@ -8,14 +8,18 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+// One line per (cart, item): the unique index is created in db/schema-updates.sql, after duplicate lines
+// left from before it existed have been merged
 @Table(name = "cart_items")
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class CartItem {
+    // Sequence ids (unlike IDENTITY) let Hibernate batch inserts of cart lines
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
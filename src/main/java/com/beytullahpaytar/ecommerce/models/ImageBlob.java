@@ -0,0 +1,23 @@
+package com.beytullahpaytar.ecommerce.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Reference count of a content-addressed image, keyed by the image URL items store
+@Entity
+@Table(name = "image_blobs")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageBlob {
+    @Id
+    @Column(length = 128)
+    private String imageKey;
+
+    @Column(nullable = false)
+    private Integer refCount;
+}
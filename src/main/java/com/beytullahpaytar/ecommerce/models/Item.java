@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+// The (price, id) and (name, id) indexes for sorted listing are in db/schema-updates.sql, JPA cannot declare
+// the columns they carry along for index-only scans
 @Table(name = "items")
 @Getter
 @Setter
@@ -23,9 +25,18 @@ public class Item {
     @Column(nullable = false)
     private String description;
 
-    @Column(nullable = false)
-    private Double price;
+    @Column(nullable = false, precision = 19, scale = Money.SCALE)
+    private Money price;
 
     @Column(nullable = false)
     private String imageUrl;
+
+    // Units left, null when stock is not tracked for this item. Only ever changed through the
+    // conditional updates in ItemRepository, so saving a loaded item never writes back a stale count.
+    @Column(updatable = false)
+    private Integer stock;
+
+    public Item(Long id, String name, String description, Money price, String imageUrl) {
+        this(id, name, description, price, imageUrl, null);
+    }
 }
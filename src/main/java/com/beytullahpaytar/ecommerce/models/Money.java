@@ -0,0 +1,57 @@
+package com.beytullahpaytar.ecommerce.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An exact amount of money as a whole number of cents, so sums and products never drift the way doubles do.
+ * Stored as numeric(19, 2) through MoneyConverter and written to JSON as a plain decimal number, 12.34.
+ * There is a single currency, so an amount carries none.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    public static final int SCALE = 2;
+
+    // Rejects amounts with fractions of a cent or beyond the range of a long instead of rounding them away
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        try {
+            return new Money(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Not an amount of whole cents: " + amount, e);
+        }
+    }
+
+    // "12.34", also how request parameters and cursors carry amounts
+    public static Money valueOf(String amount) {
+        return of(new BigDecimal(amount.trim()));
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
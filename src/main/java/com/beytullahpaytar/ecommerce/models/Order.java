@@ -2,16 +2,27 @@ package com.beytullahpaytar.ecommerce.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_id", columnList = "order_status, id"),
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
+    // A sequence id defers the insert to the flush, so checkout writes the order and completes the cart together
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -29,14 +40,31 @@ public class Order {
     @Column(nullable = false)
     private String email;
 
-    @OneToOne
-    @JoinColumn(name = "cart_id", referencedColumnName = "id")
-    private Cart cart;
+    // The cart the order was checked out from, only an id so completed carts can be archived or purged
+    @Column(name = "cart_id", updatable = false)
+    private Long cartId;
+
+    // Snapshot of the cart lines at checkout, inserted with the order
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
+    @OrderBy("id")
+    private List<OrderLine> lines = new ArrayList<>();
 
+    // Stored as a smallint code, see OrderStatusConverter
     @Column(nullable = false)
-    private String orderStatus;
+    private OrderStatus orderStatus;
+
+    @Column(nullable = false, precision = 19, scale = Money.SCALE)
+    private Money totalPrice = Money.ZERO;
+
+    // Null for orders placed before it was recorded
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Instant createdAt;
 
+    // Status changes bump this as well, so a stale copy of the order can no longer be saved over them
+    @Version
+    @ColumnDefault("0")
     @Column(nullable = false)
-    private Double totalPrice = 0.0;
+    private Long version;
 }
 
@@ -0,0 +1,41 @@
+package com.beytullahpaytar.ecommerce.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A cart line as it was at checkout. Later edits to the item, or deleting it, leave the order as it was placed.
+@Entity
+@Table(name = "order_lines", indexes = @Index(name = "idx_order_lines_order_id", columnList = "order_id"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderLine {
+    // Sequence ids let Hibernate write all lines of an order in one batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_lines_seq")
+    @SequenceGenerator(name = "order_lines_seq", sequenceName = "order_lines_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    @JsonIgnore // prevents infinite loop
+    private Order order;
+
+    // Not a foreign key, the item may be gone by the time the order is read
+    @Column(nullable = false)
+    private Long itemId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false, precision = 19, scale = Money.SCALE)
+    private Money unitPrice;
+
+    @Column(nullable = false)
+    private Integer quantity;
+}
@@ -0,0 +1,69 @@
+package com.beytullahpaytar.ecommerce.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+public enum OrderStatus {
+    // Codes are what the database stores, never reuse or renumber them
+    PENDING(0),
+    PROCESSING(1),
+    SHIPPED(2),
+    DELIVERED(3),
+    CANCELLED(4);
+
+    private final short code;
+
+    OrderStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public Set<OrderStatus> nextStatuses() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PROCESSING, SHIPPED, CANCELLED);
+            case PROCESSING -> EnumSet.of(SHIPPED, CANCELLED);
+            case SHIPPED -> EnumSet.of(DELIVERED);
+            case DELIVERED, CANCELLED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return nextStatuses().contains(target);
+    }
+
+    // Statuses an order may be in to move to this one
+    public Set<OrderStatus> previousStatuses() {
+        Set<OrderStatus> previous = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus status : values()) {
+            if (status.canTransitionTo(this)) {
+                previous.add(status);
+            }
+        }
+        return previous;
+    }
+
+    public static OrderStatus fromCode(short code) {
+        return Arrays.stream(values())
+                .filter(status -> status.code == code)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown order status code: " + code));
+    }
+
+    @JsonCreator
+    public static OrderStatus from(String value) {
+        return find(value).orElseThrow(() -> new IllegalArgumentException("Unknown order status: " + value));
+    }
+
+    public static Optional<OrderStatus> find(String value) {
+        return Arrays.stream(values())
+                .filter(status -> status.name().equalsIgnoreCase(value))
+                .findFirst();
+    }
+}
@@ -0,0 +1,19 @@
+package com.beytullahpaytar.ecommerce.models;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores OrderStatus as its smallint code, so renaming or reordering the constants never touches the data
+@Converter(autoApply = true)
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(OrderStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public OrderStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : OrderStatus.fromCode(code);
+    }
+}
@@ -0,0 +1,19 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "outbox.logging-sink-enabled", havingValue = "true", matchIfMissing = true)
+public class LoggingOutboxSink implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public void publish(OutboxEvent event) {
+        log.info("{} {} #{} (event {}): {}", event.getEventType(), event.getAggregateType(),
+                event.getAggregateId(), event.getId(), event.getPayload());
+    }
+}
@@ -0,0 +1,62 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+// An event waiting to be relayed, deleted once every sink has accepted it.
+// Events that kept failing are parked: left in the table for inspection, but no longer relayed.
+@Entity
+@Table(name = "outbox_events", indexes = @Index(name = "idx_outbox_events_aggregate_id",
+        columnList = "aggregate_type, aggregate_id, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Column(nullable = false, length = 64)
+    private String eventType;
+
+    // JSON
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // Not retried before then, null until the first failure
+    private Instant nextAttemptAt;
+
+    private Instant parkedAt;
+
+    // Set while a relay instance is delivering the event, other instances leave it alone until then
+    private Instant claimedUntil;
+
+    public OutboxEvent(String aggregateType, Long aggregateId, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,33 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties("outbox")
+public class OutboxProperties {
+
+    private boolean relayEnabled = true;
+
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    private int batchSize = 100;
+
+    // Failed deliveries are retried after retry-backoff, doubling up to max-retry-backoff.
+    // An event still failing after max-attempts is parked and no longer holds back the later events of its aggregate.
+    private int maxAttempts = 10;
+
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+    // A sink that has not answered by then counts as failed. Also bounds the claim on a batch, an instance
+    // that dies while delivering leaves its events to the others once sink-timeout per event and sink has passed.
+    private Duration sinkTimeout = Duration.ofSeconds(10);
+
+    private boolean loggingSinkEnabled = true;
+}
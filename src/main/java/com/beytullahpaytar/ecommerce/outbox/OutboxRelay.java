@@ -0,0 +1,178 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the outbox in the background and hands each event to every OutboxSink. A batch is claimed in a
+ * short transaction and delivered after it has committed, so no connection or row lock is held while sinks
+ * run. Claims are taken one instance at a time and skip events claimed by the others, so several instances
+ * can relay side by side without working on the same event.
+ * <p>
+ * Ordering is per aggregate: an event is only claimed while no earlier event of its aggregate (for orders,
+ * the order id) is claimed or backing off after a failure. An OrderStatusChanged therefore never goes out
+ * before its OrderCreated, while events of other aggregates keep flowing past a failing one.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // Key of the advisory lock serializing claims, "outbox" in ASCII
+    private static final long CLAIM_LOCK_KEY = 0x6f7574626f78L;
+
+    // Room for committing the outcome of a batch after its last sink call
+    private static final Duration CLAIM_MARGIN = Duration.ofMinutes(1);
+
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxSink> sinks;
+    private final OutboxProperties outboxProperties;
+    private final TransactionTemplate transactionTemplate;
+    // Sinks are called from here so a hung one can be given up on after sink-timeout
+    private final ExecutorService sinkExecutor;
+
+    public OutboxRelay(OutboxRepository outboxRepository, List<OutboxSink> sinks,
+                       OutboxProperties outboxProperties, PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.outboxProperties = outboxProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threads = new AtomicInteger();
+        this.sinkExecutor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "outbox-sink-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:1s}")
+    public void relay() {
+        if (!outboxProperties.isRelayEnabled()) {
+            return;
+        }
+        // Keep going while batches come back full, a failed event is retried once its backoff has passed
+        boolean more;
+        do {
+            more = relayBatch();
+        } while (more);
+    }
+
+    /**
+     * Claims one batch, delivers it in id order and then records the outcome: delivered events are deleted,
+     * failed ones scheduled for a retry or parked after max-attempts. Events behind a failed one of the same
+     * aggregate are not attempted and only have their claim released.
+     * Returns true when the batch was full and nothing failed, so more events may be waiting.
+     */
+    public boolean relayBatch() {
+        List<OutboxEvent> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        List<Long> delivered = new ArrayList<>(batch.size());
+        List<OutboxEvent> kept = new ArrayList<>();
+        Set<String> heldBack = new HashSet<>();
+        for (OutboxEvent event : batch) {
+            event.setClaimedUntil(null);
+            String aggregate = event.getAggregateType() + ":" + event.getAggregateId();
+            if (heldBack.contains(aggregate)) {
+                kept.add(event);
+                continue;
+            }
+            try {
+                for (OutboxSink sink : sinks) {
+                    publish(sink, event);
+                }
+                delivered.add(event.getId());
+            } catch (Exception e) {
+                if (!fail(event, e, Instant.now())) {
+                    heldBack.add(aggregate);
+                }
+                kept.add(event);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteAllByIdInBatch(delivered);
+            outboxRepository.saveAll(kept);
+        });
+        // A failing sink is likely to fail the next batch too, the rest waits for the next poll
+        return heldBack.isEmpty() && batch.size() == outboxProperties.getBatchSize();
+    }
+
+    // The claim lasts as long as delivering the whole batch may take with every sink running into its timeout
+    private List<OutboxEvent> claimBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            outboxRepository.lockClaims(CLAIM_LOCK_KEY);
+            Instant now = Instant.now();
+            List<OutboxEvent> claimed = outboxRepository.findClaimable(now, outboxProperties.getBatchSize());
+            Instant claimedUntil = now.plus(outboxProperties.getSinkTimeout()
+                    .multipliedBy((long) claimed.size() * Math.max(sinks.size(), 1))).plus(CLAIM_MARGIN);
+            claimed.forEach(event -> event.setClaimedUntil(claimedUntil));
+            return claimed;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private void publish(OutboxSink sink, OutboxEvent event) throws Exception {
+        Duration timeout = outboxProperties.getSinkTimeout();
+        Future<?> delivery = sinkExecutor.submit(() -> {
+            sink.publish(event);
+            return null;
+        });
+        try {
+            delivery.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            delivery.cancel(true);
+            throw new TimeoutException(sink.getClass().getSimpleName() + " did not answer within " + timeout);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    // Records the failure and schedules the next attempt, returns true when the event has been parked
+    private boolean fail(OutboxEvent event, Exception e, Instant now) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(StringUtils.truncate(String.valueOf(e.getMessage()), 1000));
+        if (attempts >= outboxProperties.getMaxAttempts()) {
+            log.error("Outbox event {} parked after {} failed attempts", event.getId(), attempts, e);
+            event.setParkedAt(now);
+            return true;
+        }
+        log.warn("Outbox event {} failed on attempt {}", event.getId(), attempts, e);
+        event.setNextAttemptAt(now.plus(backoff(attempts)));
+        return false;
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = outboxProperties.getRetryBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(outboxProperties.getMaxRetryBackoff()) > 0
+                ? outboxProperties.getMaxRetryBackoff() : backoff;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sinkExecutor.shutdownNow();
+    }
+}
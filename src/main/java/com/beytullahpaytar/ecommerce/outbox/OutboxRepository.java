@@ -0,0 +1,35 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Serializes claiming across relay instances, the lock is held until the claiming transaction ends
+    @Query(nativeQuery = true, value = "SELECT 1 FROM pg_advisory_xact_lock(:key)")
+    Integer lockClaims(@Param("key") long key);
+
+    /**
+     * Oldest due events no relay instance holds a claim on. An event is only returned while no earlier
+     * unparked event of its aggregate is claimed or backing off, so each aggregate's events go out in order.
+     */
+    @Query(nativeQuery = true, value = """
+           SELECT * FROM outbox_events e
+           WHERE e.parked_at IS NULL
+             AND (e.claimed_until IS NULL OR e.claimed_until < :now)
+             AND (e.next_attempt_at IS NULL OR e.next_attempt_at <= :now)
+             AND NOT EXISTS (SELECT 1 FROM outbox_events earlier
+                             WHERE earlier.aggregate_type = e.aggregate_type
+                               AND earlier.aggregate_id = e.aggregate_id
+                               AND earlier.id < e.id
+                               AND earlier.parked_at IS NULL
+                               AND (earlier.claimed_until >= :now OR earlier.next_attempt_at > :now))
+           ORDER BY e.id
+           LIMIT :limit
+           """)
+    List<OutboxEvent> findClaimable(@Param("now") Instant now, @Param("limit") int limit);
+}
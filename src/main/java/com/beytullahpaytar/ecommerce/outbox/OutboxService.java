@@ -0,0 +1,42 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class OutboxService {
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Queues an event in the caller's transaction, so it is relayed if and only if the change it
+     * describes commits. Calling this outside a transaction is a bug and fails.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        outboxRepository.save(new OutboxEvent(aggregateType, aggregateId, eventType, toJson(payload)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<OutboxEvent> events) {
+        outboxRepository.saveAll(events);
+    }
+
+    public String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
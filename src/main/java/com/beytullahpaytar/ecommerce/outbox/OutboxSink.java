@@ -0,0 +1,13 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+/**
+ * Destination for relayed events, every OutboxSink bean receives every event.
+ * Delivery is at least once: an event is offered again until all sinks have accepted it or it is
+ * parked after outbox.max-attempts, so sinks should ignore event ids they have already seen.
+ * A call that runs past outbox.sink-timeout is interrupted and counts as a failed attempt.
+ * Events of one aggregate arrive in the order they were recorded, events of different aggregates may not.
+ */
+public interface OutboxSink {
+
+    void publish(OutboxEvent event) throws Exception;
+}
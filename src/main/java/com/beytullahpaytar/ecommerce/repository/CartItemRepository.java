@@ -2,7 +2,39 @@ package com.beytullahpaytar.ecommerce.repository;
 
 import com.beytullahpaytar.ecommerce.models.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     CartItem findByItemIdAndCartId(Long itemId, Long cartId);
+
+    /**
+     * Deletes the line if it belongs to the cart and the cart is still open, returns the number of lines deleted.
+     * The cart row is share-locked like in upsertQuantity, so a checkout holding it is waited for.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM cart_items
+            WHERE id = :id AND cart_id = :cartId
+              AND EXISTS (SELECT 1 FROM carts WHERE id = :cartId AND is_completed = false FOR SHARE)
+            """, nativeQuery = true)
+    int deleteFromOpenCart(@Param("id") Long id, @Param("cartId") Long cartId);
+
+    /**
+     * Adds the quantity to the cart's line for the item, creating the line if needed, in one atomic statement.
+     * Returns 0 without changing anything when the cart is no longer open. The cart row is share-locked,
+     * so this waits for batch updates and checkouts holding it and then sees their outcome.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO cart_items (id, cart_id, item_id, quantity)
+            SELECT nextval('cart_items_seq'), :cartId, :itemId, :quantity
+            WHERE EXISTS (SELECT 1 FROM carts WHERE id = :cartId AND is_completed = false FOR SHARE)
+            ON CONFLICT (cart_id, item_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity
+            """, nativeQuery = true)
+    int upsertQuantity(@Param("cartId") Long cartId, @Param("itemId") Long itemId, @Param("quantity") int quantity);
 }
@@ -1,9 +1,40 @@
 package com.beytullahpaytar.ecommerce.repository;
 
 import com.beytullahpaytar.ecommerce.models.Cart;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
-    Cart findFirstByIsCompletedFalse();
+    Cart findFirstByTokenAndIsCompletedFalse(String token);
+
+    /**
+     * Opens an empty cart for the token. Does nothing and returns 0 when the token has an open cart already,
+     * such as one opened by a concurrent request: at most one open cart per token is enforced by the partial
+     * unique index uk_carts_open_token from db/schema-updates.sql.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO carts (id, token, is_completed)
+            VALUES (nextval('carts_seq'), :token, false)
+            ON CONFLICT (token) WHERE is_completed = false DO NOTHING
+            """, nativeQuery = true)
+    int insertOpenCart(@Param("token") String token);
+
+    // Loads the cart, its lines and their items in a single query
+    @EntityGraph(attributePaths = {"cartItems", "cartItems.item"})
+    Optional<Cart> findWithItemsById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Cart c where c.id = :id")
+    Optional<Cart> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,35 @@
+package com.beytullahpaytar.ecommerce.repository;
+
+import com.beytullahpaytar.ecommerce.models.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // Adds a reference, creating the row for the first one. Waits while a release holds the row.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO image_blobs (image_key, ref_count) VALUES (:imageKey, 1)
+            ON CONFLICT (image_key) DO UPDATE SET ref_count = image_blobs.ref_count + 1
+            """, nativeQuery = true)
+    int acquire(@Param("imageKey") String imageKey);
+
+    // Drops a reference and returns the count left, nothing when the image is unknown. Locks the row until commit.
+    @Transactional
+    @Query(value = """
+            UPDATE image_blobs SET ref_count = ref_count - 1
+            WHERE image_key = :imageKey AND ref_count > 0
+            RETURNING ref_count
+            """, nativeQuery = true)
+    List<Integer> release(@Param("imageKey") String imageKey);
+
+    @Modifying
+    @Query("delete from ImageBlob b where b.imageKey = :imageKey and b.refCount = 0")
+    int deleteUnused(@Param("imageKey") String imageKey);
+}
@@ -1,9 +1,79 @@
 package com.beytullahpaytar.ecommerce.repository;
 
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
     Item findItemsByName(String name);
-}
 
+    // Keyset pagination: every page seeks past the last (sort value, id) of the previous one,
+    // so the cost of a page does not grow with its position in the catalog.
+
+    List<Item> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Item> findAllByOrderByPriceAscIdAsc(Limit limit);
+
+    @Query("select i from Item i where i.price > :price or (i.price = :price and i.id > :id) order by i.price asc, i.id asc")
+    List<Item> findPageAfterPrice(@Param("price") Money price, @Param("id") Long id, Limit limit);
+
+    List<Item> findAllByOrderByNameAscIdAsc(Limit limit);
+
+    @Query("select i from Item i where i.name > :name or (i.name = :name and i.id > :id) order by i.name asc, i.id asc")
+    List<Item> findPageAfterName(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+    // Must be consumed inside a transaction; the fetch size makes the driver use a cursor instead of buffering every row
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Item> streamAllByOrderByIdAsc();
+
+    // Full text search over items.search_vector (see db/search-postgres.sql), for search.mode=postgres.
+    // Rows are (id, score), best first.
+    @Query(nativeQuery = true, value = """
+           SELECT i.id, ts_rank_cd(i.search_vector, q.query) AS score
+           FROM items i, to_tsquery('simple', :query) AS q(query)
+           WHERE i.search_vector @@ q.query
+           ORDER BY score DESC, i.id
+           LIMIT :limit
+           """)
+    List<Object[]> searchFullText(@Param("query") String query, @Param("limit") int limit);
+
+    // Stock: all changes are single conditional statements, the row lock is held only until the caller commits.
+
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.stock = :stock where i.id = :id")
+    int setStock(@Param("id") Long id, @Param("stock") Integer stock);
+
+    // Takes quantity units if that many are left, untracked (null) stock always succeeds and stays null
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.stock = i.stock - :quantity where i.id = :id and (i.stock is null or i.stock >= :quantity)")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.stock = i.stock + :quantity where i.id = :id and i.stock is not null")
+    int releaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Takes up to chunk units, returns how many were taken, or nothing when no tracked stock is left
+    @Transactional
+    @Query(nativeQuery = true, value = """
+           UPDATE items i
+           SET stock = i.stock - claim.units
+           FROM (SELECT id, least(stock, :chunk) AS units FROM items WHERE id = :id AND stock > 0 FOR UPDATE) claim
+           WHERE i.id = claim.id
+           RETURNING claim.units
+           """)
+    List<Integer> claimStock(@Param("id") Long id, @Param("chunk") int chunk);
+}
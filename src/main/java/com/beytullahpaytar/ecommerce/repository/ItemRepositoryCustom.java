@@ -0,0 +1,15 @@
+package com.beytullahpaytar.ecommerce.repository;
+
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemSortKey;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+
+import java.util.List;
+
+public interface ItemRepositoryCustom {
+
+    // Items matching the filter in (sort key, id) order, seeking past (afterValue, afterId) if given.
+    // afterValue is the price or name of the last item seen, unused when sorting by id.
+    List<ItemSummaryDto> findSummaries(ItemFilter filter, ItemSortKey sortKey, boolean descending,
+                                       Long afterId, Object afterValue, int limit);
+}
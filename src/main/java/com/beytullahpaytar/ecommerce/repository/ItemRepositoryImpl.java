@@ -0,0 +1,82 @@
+package com.beytullahpaytar.ecommerce.repository;
+
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemSortKey;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ItemRepositoryImpl implements ItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ItemSummaryDto> findSummaries(ItemFilter filter, ItemSortKey sortKey, boolean descending,
+                                              Long afterId, Object afterValue, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ItemSummaryDto> query = cb.createQuery(ItemSummaryDto.class);
+        Root<Item> item = query.from(Item.class);
+        Path<Long> id = item.get("id");
+        Path<Money> price = item.get("price");
+        Path<String> name = item.get("name");
+
+        // Only the filters that are set end up in the SQL, so each combination can use its index
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.minPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(price, filter.minPrice()));
+        }
+        if (filter.maxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(price, filter.maxPrice()));
+        }
+        if (afterId != null) {
+            predicates.add(switch (sortKey) {
+                case ID -> beyond(cb, descending, id, afterId);
+                case PRICE -> seek(cb, descending, price, (Money) afterValue, id, afterId);
+                case NAME -> seek(cb, descending, name, (String) afterValue, id, afterId);
+            });
+        }
+
+        // The id breaks ties in the same direction, so a backward scan of (price, id) or (name, id) serves descending pages
+        List<Order> order = new ArrayList<>();
+        if (sortKey == ItemSortKey.PRICE) {
+            order.add(descending ? cb.desc(price) : cb.asc(price));
+        } else if (sortKey == ItemSortKey.NAME) {
+            order.add(descending ? cb.desc(name) : cb.asc(name));
+        }
+        order.add(descending ? cb.desc(id) : cb.asc(id));
+
+        query.select(cb.construct(ItemSummaryDto.class, id, name, price, item.get("imageUrl")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(order);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // Past (value, id) in the sort order
+    private static <T extends Comparable<? super T>> Predicate seek(CriteriaBuilder cb, boolean descending,
+                                                                    Expression<T> sortValue, T value,
+                                                                    Path<Long> id, Long afterId) {
+        return cb.or(beyond(cb, descending, sortValue, value),
+                cb.and(cb.equal(sortValue, value), beyond(cb, descending, id, afterId)));
+    }
+
+    private static <T extends Comparable<? super T>> Predicate beyond(CriteriaBuilder cb, boolean descending,
+                                                                      Expression<T> expression, T value) {
+        return descending ? cb.lessThan(expression, value) : cb.greaterThan(expression, value);
+    }
+}
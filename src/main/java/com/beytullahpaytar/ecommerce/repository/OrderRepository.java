@@ -1,7 +1,57 @@
 package com.beytullahpaytar.ecommerce.repository;
 
 import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    // Orders are read with their lines in a single query, joined through idx_order_lines_order_id
+
+    @Override
+    @EntityGraph(attributePaths = "lines")
+    Optional<Order> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findWithLinesByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("select o.orderStatus from Order o where o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    // Moves the order only if it is still in one of the given statuses, returns the number of rows changed
+    @Transactional
+    @Modifying
+    @Query("""
+           update Order o
+           set o.orderStatus = :target, o.version = o.version + 1
+           where o.id = :id and o.orderStatus in :from
+           """)
+    int updateStatus(@Param("id") Long id,
+                     @Param("from") Collection<OrderStatus> from,
+                     @Param("target") OrderStatus target);
+
+    // Bulk variant of updateStatus, returns the ids it moved
+    @Transactional
+    @Query(nativeQuery = true, value = """
+           UPDATE orders
+           SET order_status = :target, version = version + 1
+           WHERE id IN (:ids) AND order_status IN (:from)
+           RETURNING id
+           """)
+    List<Long> updateStatuses(@Param("ids") Collection<Long> ids,
+                              @Param("from") Collection<Short> fromCodes,
+                              @Param("target") short targetCode);
 }
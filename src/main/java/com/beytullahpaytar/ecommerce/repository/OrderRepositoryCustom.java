@@ -0,0 +1,12 @@
+package com.beytullahpaytar.ecommerce.repository;
+
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderSummaryDto;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    // Orders matching the filter with an id above afterId (if given), in id order, without their carts
+    List<OrderSummaryDto> findSummaries(OrderFilter filter, Long afterId, int offset, int limit);
+}
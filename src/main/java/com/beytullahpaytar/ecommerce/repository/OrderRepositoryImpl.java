@@ -0,0 +1,58 @@
+package com.beytullahpaytar.ecommerce.repository;
+
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderSummaryDto;
+import com.beytullahpaytar.ecommerce.models.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummaryDto> findSummaries(OrderFilter filter, Long afterId, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummaryDto> query = cb.createQuery(OrderSummaryDto.class);
+        Root<Order> order = query.from(Order.class);
+
+        // Only the filters that are set end up in the SQL, so each combination can use its index
+        List<Predicate> predicates = new ArrayList<>();
+        if (afterId != null) {
+            predicates.add(cb.greaterThan(order.get("id"), afterId));
+        }
+        if (filter.orderStatus() != null) {
+            predicates.add(cb.equal(order.get("orderStatus"), filter.orderStatus()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.get("createdAt"), filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(cb.lessThan(order.get("createdAt"), filter.createdTo()));
+        }
+
+        query.select(cb.construct(OrderSummaryDto.class,
+                        order.get("id"),
+                        order.get("name"),
+                        order.get("surname"),
+                        order.get("email"),
+                        order.get("orderStatus"),
+                        order.get("totalPrice"),
+                        order.get("createdAt")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(order.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
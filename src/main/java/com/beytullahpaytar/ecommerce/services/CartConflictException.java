@@ -0,0 +1,8 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class CartConflictException extends RuntimeException {
+
+    public CartConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,76 +1,164 @@
 package com.beytullahpaytar.ecommerce.services;
 
+import com.beytullahpaytar.ecommerce.config.CartProperties;
 import com.beytullahpaytar.ecommerce.dto.CartItemDto;
 import com.beytullahpaytar.ecommerce.models.Cart;
 import com.beytullahpaytar.ecommerce.models.CartItem;
 import com.beytullahpaytar.ecommerce.models.Item;
 import com.beytullahpaytar.ecommerce.repository.CartItemRepository;
 import com.beytullahpaytar.ecommerce.repository.CartRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class CartService {
+
+    // Each attempt after the first follows a checkout that completed the cart it was adding to
+    private static final int MAX_ADD_ATTEMPTS = 3;
+
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ItemService itemService;
 
-    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, ItemService itemService) {
+    // Cart token -> id of its open cart, so cart calls that only need the id skip the lookup query
+    private final Cache<String, Long> openCartIds;
+
+    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, ItemService itemService,
+                       CartProperties cartProperties) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.itemService = itemService;
+        this.openCartIds = Caffeine.newBuilder()
+                .maximumSize(cartProperties.getOpenCartCacheMaximumSize())
+                .expireAfterAccess(cartProperties.getOpenCartCacheTtl())
+                .build();
     }
 
-    public Cart getCart(){
-        Cart cart = cartRepository.findFirstByIsCompletedFalse();
+    public Cart getCart(String token) {
+        Cart cart = cartRepository.findFirstByTokenAndIsCompletedFalse(token);
         if (cart == null) {
-            cart = new Cart();
-            cartRepository.save(cart);
+            cartRepository.insertOpenCart(token);
+            // The new cart, or the one a concurrent request opened first, which turned the insert into a no-op
+            cart = cartRepository.findFirstByTokenAndIsCompletedFalse(token);
+            if (cart == null) {
+                throw new IllegalStateException("Could not open a cart");
+            }
+        }
+        openCartIds.put(token, cart.getId());
+        return cart;
+    }
+
+    // Same as getCart, but with lines and items fetched up front for rendering the whole cart
+    public Cart getCartWithItems(String token) {
+        Cart cart = cartRepository.findWithItemsById(getCartId(token)).orElse(null);
+        if (cart == null || cart.getIsCompleted()) {
+            // the remembered cart was completed or removed in the meantime
+            openCartIds.invalidate(token);
+            cart = cartRepository.findWithItemsById(getCart(token).getId()).orElseThrow();
         }
         return cart;
     }
 
-    public void addItemToCart(CartItemDto cartItemDto) {
-        Cart cart = getCart();
+    private Long getCartId(String token) {
+        Long cartId = openCartIds.getIfPresent(token);
+        return cartId != null ? cartId : getCart(token).getId();
+    }
 
-        // Check if the item already exists in the cart
-        CartItem cartItem = cartItemRepository.findByItemIdAndCartId(cartItemDto.itemId(), cart.getId());
-        if(cartItem != null) {
-            cartItem.setQuantity(cartItem.getQuantity() + cartItemDto.quantity());
-            cartItemRepository.save(cartItem);
-            return;
+    public void addItemToCart(String token, CartItemDto cartItemDto) {
+        if (itemService.getItem(cartItemDto.itemId()) == null) {
+            throw new EntityNotFoundException("Item not found: " + cartItemDto.itemId());
         }
 
-        cartItem = new CartItem();
-        Item item = itemService.getItem(cartItemDto.itemId());
-        cartItem.setItem(item);
-        cartItem.setQuantity(cartItemDto.quantity());
-        cartItem.setCart(cart);
-        cartItemRepository.save(cartItem);
+        for (int attempt = 0; attempt < MAX_ADD_ATTEMPTS; attempt++) {
+            if (cartItemRepository.upsertQuantity(getCartId(token), cartItemDto.itemId(), cartItemDto.quantity()) > 0) {
+                return;
+            }
+            // The cart was completed in the meantime, retry with the shopper's current open cart
+            openCartIds.invalidate(token);
+        }
+        throw new CartConflictException("The cart was checked out while adding item " + cartItemDto.itemId()
+                + ", please try again");
     }
 
-    public void removeItemFromCart(Long cartItemId) {
-        cartItemRepository.findById(cartItemId).ifPresent(cartItemRepository::delete);
+    /**
+     * Applies several additions in one transaction. New lines are inserted and changed quantities updated
+     * through JDBC batches when the transaction commits.
+     */
+    @Transactional
+    public void addItemsToCart(String token, List<CartItemDto> cartItemDtos) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemDto cartItemDto : cartItemDtos) {
+            quantities.merge(cartItemDto.itemId(), cartItemDto.quantity(), Integer::sum);
+        }
+
+        Map<Long, Item> items = itemService.getItems(quantities.keySet());
+        for (Long itemId : quantities.keySet()) {
+            if (!items.containsKey(itemId)) {
+                throw new EntityNotFoundException("Item not found: " + itemId);
+            }
+        }
+
+        Cart cart = lockOpenCart(token);
+        Map<Long, CartItem> lines = new HashMap<>();
+        for (CartItem cartItem : cart.getCartItems()) {
+            if (cartItem.getItem() != null) {
+                lines.put(cartItem.getItem().getId(), cartItem);
+            }
+        }
+
+        quantities.forEach((itemId, quantity) -> {
+            CartItem cartItem = lines.get(itemId);
+            if (cartItem != null) {
+                cartItem.setQuantity(cartItem.getQuantity() + quantity);
+                return;
+            }
+            cartItem = new CartItem();
+            cartItem.setItem(items.get(itemId));
+            cartItem.setQuantity(quantity);
+            cartItem.setCart(cart);
+            cart.getCartItems().add(cartItem);
+        });
+    }
+
+    // Must run inside a transaction, the lock is held until it ends
+    public Cart lockOpenCart(String token) {
+        Cart cart = cartRepository.findByIdForUpdate(getCartId(token)).orElse(null);
+        if (cart == null || cart.getIsCompleted()) {
+            openCartIds.invalidate(token);
+            cart = cartRepository.findByIdForUpdate(getCart(token).getId()).orElseThrow();
+        }
+        return cart;
     }
 
-    public void clearCart() {
-        Cart cart = getCart();
+    public void removeItemFromCart(String token, Long cartItemId) {
+        if (cartItemRepository.deleteFromOpenCart(cartItemId, getCartId(token)) == 0) {
+            // Not a line of the remembered cart, or that cart was completed in the meantime: retry with the
+            // shopper's current open cart, lines of completed carts are never touched
+            openCartIds.invalidate(token);
+            cartItemRepository.deleteFromOpenCart(cartItemId, getCartId(token));
+        }
+    }
+
+    public void clearCart(String token) {
+        Cart cart = getCart(token);
         cart.getCartItems().clear();
         cartRepository.save(cart);
     }
 
-    public void completeCart() {
-        Cart cart = getCart();
+    public void completeCart(Cart cart) {
         cart.setIsCompleted(true);
         cartRepository.save(cart);
-    }
-
-    public Double getTotalPrice() {
-        Cart cart = getCart();
-        double totalPrice = 0.0;
-        for (CartItem cartItem : cart.getCartItems()) {
-            totalPrice += cartItem.getItem().getPrice() * cartItem.getQuantity();
+        if (cart.getToken() != null) {
+            openCartIds.invalidate(cart.getToken());
         }
-        return totalPrice;
     }
 
 }
@@ -0,0 +1,8 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action at most once per idempotency key. Retries with a key whose action already completed get the
+ * remembered result; retries arriving while it is still running wait for it instead of running it again.
+ * Failed actions are forgotten so the client can retry them. A retry waits at most order.idempotency-wait-timeout
+ * and then gets IdempotencyKeyInProgressException, so a hung action cannot pile up blocked request threads.
+ */
+@Service
+public class IdempotencyService {
+
+    private final Cache<String, CompletableFuture<Object>> results;
+    private final Duration waitTimeout;
+
+    public IdempotencyService(OrderProperties orderProperties) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(orderProperties.getIdempotencyMaximumKeys())
+                .expireAfterWrite(orderProperties.getIdempotencyKeyTtl())
+                .build();
+        this.waitTimeout = orderProperties.getIdempotencyWaitTimeout();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> action) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Object> existing = results.asMap().putIfAbsent(key, result);
+        if (existing != null) {
+            try {
+                return (T) existing.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new CompletionException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new IdempotencyKeyInProgressException("A request with this idempotency key is still running");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyKeyInProgressException("A request with this idempotency key is still running");
+            }
+        }
+
+        try {
+            T value = action.get();
+            result.complete(value);
+            return value;
+        } catch (Throwable e) { // Errors and sneaky checked exceptions too, or waiters would never be released
+            results.asMap().remove(key, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
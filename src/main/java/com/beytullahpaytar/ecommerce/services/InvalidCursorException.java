@@ -0,0 +1,12 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class InvalidCursorException extends InvalidRequestException {
+
+    public InvalidCursorException() {
+        super("Invalid cursor");
+    }
+
+    public InvalidCursorException(Throwable cause) {
+        super("Invalid cursor", cause);
+    }
+}
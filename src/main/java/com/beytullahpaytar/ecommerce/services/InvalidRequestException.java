@@ -0,0 +1,13 @@
+package com.beytullahpaytar.ecommerce.services;
+
+// A request the client has to correct, answered with 400 and this message
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
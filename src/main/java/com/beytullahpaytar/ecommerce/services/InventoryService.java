@@ -0,0 +1,156 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.InventoryProperties;
+import com.beytullahpaytar.ecommerce.models.Cart;
+import com.beytullahpaytar.ecommerce.models.CartItem;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserves stock for checkouts. Rows are decremented with conditional updates in ascending item id
+ * order, so two checkouts touching the same items always lock them in the same order and cannot deadlock.
+ * Items listed in inventory.hot-item-ids are served from an in-memory lease instead, refilled from and
+ * flushed back to the database in chunks, so a flash sale does not queue every checkout on one row lock.
+ */
+@Service
+public class InventoryService {
+
+    private final ItemRepository itemRepository;
+    private final ItemService itemService;
+    private final InventoryProperties inventoryProperties;
+
+    // Leases and flushes commit on their own, whatever happens to the checkout that triggered them
+    private final TransactionTemplate leaseTransaction;
+
+    private final Map<Long, StripedStockCounter> hotStock = new ConcurrentHashMap<>();
+
+    public InventoryService(ItemRepository itemRepository, ItemService itemService,
+                            InventoryProperties inventoryProperties, PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.itemService = itemService;
+        this.inventoryProperties = inventoryProperties;
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserves every line of the cart or throws OutOfStockException. Must run inside the checkout
+     * transaction: row decrements roll back with it, and units taken from a lease are put back
+     * if it does not commit.
+     */
+    public void reserve(Cart cart) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (CartItem cartItem : cart.getCartItems()) {
+            if (cartItem.getItem() != null) {
+                quantities.merge(cartItem.getItem().getId(), cartItem.getQuantity(), Integer::sum);
+            }
+        }
+
+        quantities.forEach((itemId, quantity) -> {
+            if (inventoryProperties.getHotItemIds().contains(itemId) && takeLeased(itemId, quantity)) {
+                return;
+            }
+            if (itemRepository.reserveStock(itemId, quantity) == 0) {
+                throw new OutOfStockException(itemId, quantity);
+            }
+            itemService.evictAfterCommit(itemId);
+        });
+    }
+
+    /**
+     * Sets the stock of an item, null stops tracking it. Units leased for a hot item are dropped,
+     * the new value replaces them, and units of checkouts still running are not taken back afterwards.
+     */
+    @Transactional
+    public void setStock(Long itemId, Integer stock) {
+        if (stock != null && stock < 0) {
+            throw new InvalidRequestException("Stock cannot be negative");
+        }
+        StripedStockCounter counter = hotStock.get(itemId);
+        int updated;
+        if (counter == null) {
+            updated = itemRepository.setStock(itemId, stock);
+        } else {
+            // Refills and flushes hold the same monitor, so none of them runs between the reset and the
+            // row update, and the ones after it wait on the row lock until the new value has committed
+            synchronized (counter) {
+                counter.reset();
+                updated = itemRepository.setStock(itemId, stock);
+            }
+        }
+        if (updated == 0) {
+            throw new EntityNotFoundException("Item not found: " + itemId);
+        }
+        itemService.evictAfterCommit(itemId);
+    }
+
+    // Returns false when no units can be leased, the row then decides (untracked stock or sold out)
+    private boolean takeLeased(Long itemId, int quantity) {
+        StripedStockCounter counter = hotStock.computeIfAbsent(itemId,
+                id -> new StripedStockCounter(Runtime.getRuntime().availableProcessors()));
+        int generation = counter.tryTake(quantity);
+        if (generation == StripedStockCounter.NONE) {
+            // One refill per item at a time, checkouts that find units meanwhile do not wait for it
+            synchronized (counter) {
+                while ((generation = counter.tryTake(quantity)) == StripedStockCounter.NONE) {
+                    int chunk = Math.max(inventoryProperties.getHotStockChunkSize(), quantity);
+                    List<Integer> claimed = leaseTransaction.execute(status -> {
+                        itemService.evictAfterCommit(itemId);
+                        return itemRepository.claimStock(itemId, chunk);
+                    });
+                    if (claimed == null || claimed.isEmpty()) {
+                        return false;
+                    }
+                    counter.add(claimed.getFirst());
+                }
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            int takenFrom = generation;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        // Dropped if setStock has replaced the leased units in the meantime
+                        counter.add(quantity, takenFrom);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    // Hands leased units nobody took back to the rows, so other instances and the admin see them
+    @Scheduled(fixedDelayString = "${inventory.hot-stock-flush-interval:5s}")
+    @PreDestroy
+    public void flushHotStock() {
+        hotStock.forEach((itemId, counter) -> {
+            // The release stays under the monitor, so a setStock cannot land between the drain and the release
+            synchronized (counter) {
+                int units = counter.drain();
+                if (units > 0) {
+                    leaseTransaction.executeWithoutResult(status -> {
+                        itemRepository.releaseStock(itemId, units);
+                        itemService.evictAfterCommit(itemId);
+                    });
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ItemExportService {
+
+    private final ItemRepository itemRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ItemExportService(ItemRepository itemRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.itemRepository = itemRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every item as one JSON array, row by row as it is read from the database.
+     * Items are detached once written so the persistence context does not grow with the catalog.
+     */
+    @Transactional(readOnly = true)
+    public void exportItems(OutputStream outputStream) throws IOException {
+        try (Stream<Item> items = itemRepository.streamAllByOrderByIdAsc();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            generator.writeStartArray();
+            Iterator<Item> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                Item item = iterator.next();
+                generator.writeObject(item);
+                entityManager.detach(item);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over item names and descriptions, ranked with BM25. Terms are kept sorted so a query
+ * token also matches every term it is a prefix of. Each item remembers its own terms, so updating or
+ * removing it only touches those postings. Safe for concurrent searches and updates.
+ */
+final class ItemSearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    // Terms only matched as a prefix rank below the exact term
+    private static final double PREFIX_MATCH_FACTOR = 0.8;
+
+    // term -> item id -> weighted term frequency
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    record Document(Map<String, Integer> terms, int length) {
+    }
+
+    record Hit(long itemId, double score) {
+    }
+
+    static Document analyze(String name, String description, int nameWeight) {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(name)) {
+            terms.merge(token, nameWeight, Integer::sum);
+            length += nameWeight;
+        }
+        for (String token : tokenize(description)) {
+            terms.merge(token, 1, Integer::sum);
+            length++;
+        }
+        return new Document(terms, length);
+    }
+
+    // Lower case letters and digits without accents, so "Café" and "cafe" are the same term
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(long itemId, Document document) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(itemId);
+            documents.put(itemId, document);
+            totalLength += document.length();
+            document.terms().forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(itemId, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long itemId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds a segment built separately for other items, as the parallel rebuild does
+    void merge(ItemSearchIndex segment) {
+        lock.writeLock().lock();
+        try {
+            segment.documents.forEach((itemId, document) -> {
+                removeDocument(itemId);
+                documents.put(itemId, document);
+                totalLength += document.length();
+            });
+            segment.postings.forEach((term, items) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).putAll(items));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeDocument(long itemId) {
+        Document previous = documents.remove(itemId);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length();
+        for (String term : previous.terms().keySet()) {
+            Map<Long, Integer> items = postings.get(term);
+            items.remove(itemId);
+            if (items.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Items matching every query token, best first. A token matches its own term and up to maxExpansions
+     * terms starting with it, an item scores its best match per token.
+     */
+    List<Hit> search(List<String> queryTokens, int limit, double k1, double b, int maxExpansions) {
+        lock.readLock().lock();
+        try {
+            if (queryTokens.isEmpty() || documents.isEmpty()) {
+                return List.of();
+            }
+            int itemCount = documents.size();
+            double averageLength = (double) totalLength / itemCount;
+
+            List<Map<Long, Double>> tokenScores = new ArrayList<>();
+            for (String token : new LinkedHashSet<>(queryTokens)) {
+                Map<Long, Double> scores = new HashMap<>();
+                NavigableMap<String, Map<Long, Integer>> matches = postings.subMap(token, true, token + Character.MAX_VALUE, true);
+                int expansions = 0;
+                for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+                    if (expansions++ == maxExpansions) {
+                        break;
+                    }
+                    Map<Long, Integer> items = match.getValue();
+                    double idf = Math.log(1 + (itemCount - items.size() + 0.5) / (items.size() + 0.5));
+                    double factor = match.getKey().equals(token) ? 1 : PREFIX_MATCH_FACTOR;
+                    items.forEach((itemId, frequency) -> {
+                        double lengthRatio = documents.get(itemId).length() / averageLength;
+                        double score = factor * idf * frequency * (k1 + 1) / (frequency + k1 * (1 - b + b * lengthRatio));
+                        scores.merge(itemId, score, Math::max);
+                    });
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+                tokenScores.add(scores);
+            }
+
+            // Walk the rarest token's matches, keeping the top results in a min-heap
+            tokenScores.sort(Comparator.comparingInt(Map::size));
+            Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score)
+                    .thenComparing(Comparator.comparingLong(Hit::itemId).reversed());
+            PriorityQueue<Hit> top = new PriorityQueue<>(ranking);
+            candidates:
+            for (Map.Entry<Long, Double> candidate : tokenScores.getFirst().entrySet()) {
+                double score = candidate.getValue();
+                for (Map<Long, Double> scores : tokenScores.subList(1, tokenScores.size())) {
+                    Double tokenScore = scores.get(candidate.getKey());
+                    if (tokenScore == null) {
+                        continue candidates;
+                    }
+                    score += tokenScore;
+                }
+                top.add(new Hit(candidate.getKey(), score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(ranking.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Full text search over item names and descriptions. By default items are kept in an in-process
+ * ItemSearchIndex, rebuilt from the database at startup and updated by ItemService whenever an item is
+ * written. With search.mode=postgres the same queries run against the tsvector GIN index instead.
+ */
+@Service
+public class ItemSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemSearchService.class);
+
+    // Longer queries are cut, every token makes the search narrower and slower
+    private static final int MAX_QUERY_TOKENS = 10;
+
+    private final ItemRepository itemRepository;
+    private final SearchProperties properties;
+
+    private volatile ItemSearchIndex index = new ItemSearchIndex();
+
+    // Items written while a rebuild runs, read again once the rebuilt index is in place. Guarded by this.
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    public ItemSearchService(ItemRepository itemRepository, SearchProperties properties) {
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+    }
+
+    private boolean inMemory() {
+        return properties.getMode() == SearchProperties.Mode.MEMORY;
+    }
+
+    // Ids and scores of the best matches, best first
+    List<ItemSearchIndex.Hit> search(String query, int limit) {
+        List<String> tokens = ItemSearchIndex.tokenize(query).stream().limit(MAX_QUERY_TOKENS).toList();
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        if (inMemory()) {
+            return index.search(tokens, limit, properties.getK1(), properties.getB(),
+                    properties.getMaxPrefixExpansions());
+        }
+        // Tokens are letters and digits only, nothing in them can break the tsquery syntax
+        String tsQuery = tokens.stream().map(token -> token + ":*").collect(Collectors.joining(" & "));
+        return itemRepository.searchFullText(tsQuery, limit).stream()
+                .map(row -> new ItemSearchIndex.Hit(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue()))
+                .toList();
+    }
+
+    // Called with the committed state of an item, replaces whatever was indexed for it before
+    public void index(Item item) {
+        if (!inMemory() || item.getId() == null) {
+            return;
+        }
+        ItemSearchIndex.Document document = analyze(item);
+        synchronized (this) {
+            index.put(item.getId(), document);
+            if (rebuilding) {
+                changedDuringRebuild.add(item.getId());
+            }
+        }
+    }
+
+    /**
+     * Reads the catalog in id order and indexes every batch on its own worker thread, then merges the
+     * segments and swaps the result in. Searches keep using the previous index until then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!inMemory()) {
+            return;
+        }
+        synchronized (this) {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        }
+        long startNanos = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, properties.getRebuildThreads()));
+        try {
+            List<Future<ItemSearchIndex>> segments = new ArrayList<>();
+            long lastId = 0;
+            List<Item> batch;
+            while (!(batch = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId,
+                    Limit.of(properties.getRebuildBatchSize()))).isEmpty()) {
+                List<Item> items = batch;
+                segments.add(workers.submit(() -> segment(items)));
+                lastId = batch.getLast().getId();
+            }
+            ItemSearchIndex rebuilt = new ItemSearchIndex();
+            for (Future<ItemSearchIndex> segment : segments) {
+                rebuilt.merge(segment.get());
+            }
+
+            synchronized (this) {
+                for (Long itemId : changedDuringRebuild) {
+                    itemRepository.findById(itemId).ifPresentOrElse(
+                            item -> rebuilt.put(itemId, analyze(item)),
+                            () -> rebuilt.remove(itemId));
+                }
+                index = rebuilt;
+            }
+            log.info("Search index rebuilt with {} items in {} ms", rebuilt.size(),
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not rebuild the search index", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            synchronized (this) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+        }
+    }
+
+    private ItemSearchIndex segment(List<Item> items) {
+        ItemSearchIndex segment = new ItemSearchIndex();
+        for (Item item : items) {
+            segment.put(item.getId(), analyze(item));
+        }
+        return segment;
+    }
+
+    private ItemSearchIndex.Document analyze(Item item) {
+        return ItemSearchIndex.analyze(item.getName(), item.getDescription(), properties.getNameWeight());
+    }
+}
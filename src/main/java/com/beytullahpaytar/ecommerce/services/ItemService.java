@@ -1,96 +1,352 @@
 package com.beytullahpaytar.ecommerce.services;
 
+import com.beytullahpaytar.ecommerce.config.CatalogProperties;
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
+import com.beytullahpaytar.ecommerce.dto.CacheStatsDto;
 import com.beytullahpaytar.ecommerce.dto.ItemDto;
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemPageDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSearchHitDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSortKey;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+import com.beytullahpaytar.ecommerce.fileupload.ContentAddressedImageStore;
+import com.beytullahpaytar.ecommerce.fileupload.ImageDerivativeService;
+import com.beytullahpaytar.ecommerce.fileupload.InvalidUploadException;
+import com.beytullahpaytar.ecommerce.fileupload.StorageService;
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
 import com.beytullahpaytar.ecommerce.repository.ItemRepository;
-import lombok.Setter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ItemService {
 
+    private static final Logger log = LoggerFactory.getLogger(ItemService.class);
+
     private final ItemRepository itemRepository;
+    private final CatalogProperties catalogProperties;
+    private final StorageService storageService;
+    private final ContentAddressedImageStore imageStore;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ItemSearchService itemSearchService;
+    private final TypeaheadService typeaheadService;
+    private final SearchProperties searchProperties;
 
-    @Setter //for test purposes
-    Path path = Paths.get("upload-dir");
+    // Read-through cache for getItem, refreshed once a write through this service has committed
+    private final Cache<Long, Item> itemCache;
 
-    public ItemService(ItemRepository itemRepository) {
+    public ItemService(ItemRepository itemRepository, CatalogProperties catalogProperties, StorageService storageService,
+                       ContentAddressedImageStore imageStore, ImageDerivativeService imageDerivativeService,
+                       ItemSearchService itemSearchService, TypeaheadService typeaheadService,
+                       SearchProperties searchProperties) {
         this.itemRepository = itemRepository;
+        this.catalogProperties = catalogProperties;
+        this.storageService = storageService;
+        this.imageStore = imageStore;
+        this.imageDerivativeService = imageDerivativeService;
+        this.itemSearchService = itemSearchService;
+        this.typeaheadService = typeaheadService;
+        this.searchProperties = searchProperties;
+        this.itemCache = Caffeine.newBuilder()
+                .maximumSize(catalogProperties.getItemCacheMaximumSize())
+                .expireAfterWrite(catalogProperties.getItemCacheTtl())
+                .recordStats()
+                .build();
     }
 
+    @Transactional
     public ResponseEntity<String> addItem(ItemDto dto) {
         Item item = new Item();
         item.setName(dto.name());
         item.setDescription(dto.description());
-        item.setPrice(dto.price());
+        item.setPrice(Money.of(dto.price()));
 
         item.setImageUrl(handleImageUpload(dto.imageUrl()));
 
         itemRepository.save(item);
+        afterCommit(() -> {
+            if (item.getId() != null) {
+                itemCache.put(item.getId(), detachedCopy(item));
+            }
+            itemSearchService.index(item);
+            typeaheadService.index(item);
+        });
 
         return ResponseEntity.ok("Item added successfully");
     }
 
 
+    @Transactional
     public ResponseEntity<String> updateItem(Long id, ItemDto dto) {
         Item item = itemRepository.findById(id).orElse(null);
         if (item == null) {
+            itemCache.invalidate(id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Item not found");
         }
         item.setName(dto.name());
         item.setDescription(dto.description());
-        item.setPrice(dto.price());
+        item.setPrice(Money.of(dto.price()));
 
         if(!Objects.equals(dto.imageUrl(), item.getImageUrl())) {
+            // The new upload is checked first, a missing one fails the update with the old image untouched
+            String newImageUrl = handleImageUpload(dto.imageUrl());
             handleImageDelete(item.getImageUrl());
-            item.setImageUrl(handleImageUpload(dto.imageUrl()));
+            item.setImageUrl(newImageUrl);
         }
 
         itemRepository.save(item);
+        afterCommit(() -> {
+            itemCache.put(id, detachedCopy(item));
+            itemSearchService.index(item);
+            typeaheadService.index(item);
+        });
         return ResponseEntity.ok("Item updated successfully");
     }
 
     public Item getItem(Long id) {
-        return itemRepository.findById(id).orElse(null);
+        // Missing items are not cached, a null from the loader is just passed through
+        return itemCache.get(id, key -> itemRepository.findById(key).orElse(null));
+    }
+
+    // Cached items are returned as they are, the rest is loaded with a single findAllById. Unknown ids are left out.
+    public Map<Long, Item> getItems(Collection<Long> ids) {
+        return itemCache.getAll(ids, missingIds -> itemRepository.findAllById(new ArrayList<>(missingIds)).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity())));
+    }
+
+    // For writes that bypass this service, such as stock changes: the cached item is dropped once they commit
+    public void evictAfterCommit(Long id) {
+        afterCommit(() -> itemCache.invalidate(id));
+    }
+
+    // The cache holds copies, so later changes to a managed entity never show up in it
+    private static Item detachedCopy(Item item) {
+        return new Item(item.getId(), item.getName(), item.getDescription(), item.getPrice(), item.getImageUrl(),
+                item.getStock());
+    }
+
+    public CacheStatsDto getItemCacheStats() {
+        CacheStats stats = itemCache.stats();
+        return new CacheStatsDto(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.hitRate(), itemCache.estimatedSize());
+    }
+
+    // Ranked matches for a search query, the items themselves come through the item cache
+    public List<ItemSearchHitDto> searchItems(String query, Integer limit) {
+        int maxHits = limit == null ? searchProperties.getDefaultLimit()
+                : Math.clamp(limit, 1, searchProperties.getMaxLimit());
+        List<ItemSearchIndex.Hit> hits = itemSearchService.search(query, maxHits);
+        Map<Long, Item> items = getItems(hits.stream().map(ItemSearchIndex.Hit::itemId).toList());
+        return hits.stream()
+                .filter(hit -> items.containsKey(hit.itemId())) // deleted since it was indexed
+                .map(hit -> new ItemSearchHitDto(items.get(hit.itemId()), hit.score()))
+                .toList();
     }
 
     public List<Item> getAllItems() {
         return itemRepository.findAll();
     }
 
-    public String handleImageUpload(String filename) {
+    public ItemPageDto<Item> getItemPage(String cursor, Integer size, String sort) {
+        ItemSortKey sortKey = ItemSortKey.from(sort)
+                .orElseThrow(() -> new InvalidRequestException("Unknown sort key: " + sort));
+        int pageSize = pageSize(size);
 
-        String newFilename = filename.replaceFirst("tempFile", "");
+        // Fetch one extra row to know whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+        List<Item> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = switch (sortKey) {
+                case ID -> itemRepository.findByIdGreaterThanOrderByIdAsc(0L, limit);
+                case PRICE -> itemRepository.findAllByOrderByPriceAscIdAsc(limit);
+                case NAME -> itemRepository.findAllByOrderByNameAscIdAsc(limit);
+            };
+        } else {
+            String[] position = decodeCursor(cursor, sortKey.name(), sortKey);
+            Long lastId = Long.valueOf(position[0]);
+            items = switch (sortKey) {
+                case ID -> itemRepository.findByIdGreaterThanOrderByIdAsc(lastId, limit);
+                case PRICE -> itemRepository.findPageAfterPrice(Money.valueOf(position[1]), lastId, limit);
+                case NAME -> itemRepository.findPageAfterName(position[1], lastId, limit);
+            };
+        }
+
+        if (items.size() <= pageSize) {
+            return new ItemPageDto<>(items, null);
+        }
+        List<Item> page = items.subList(0, pageSize);
+        Item last = page.getLast();
+        return new ItemPageDto<>(page,
+                encodeCursor(sortKey.name(), sortKey, last.getId(), last.getPrice(), last.getName()));
+    }
 
-        Path filePath = path.resolve(filename);
-        Path newFilePath = path.resolve(newFilename);
+    /**
+     * Catalog listing for the storefront: items within an optional price range, sorted by id, price or name
+     * in either direction, as summaries without their descriptions. Pages are read with the same keyset
+     * seek as getItemPage, straight from the listing indexes.
+     */
+    public ItemPageDto<ItemSummaryDto> getCatalogPage(ItemFilter filter, String cursor, Integer size, String sort,
+                                                      String direction) {
+        ItemSortKey sortKey = ItemSortKey.from(sort)
+                .orElseThrow(() -> new InvalidRequestException("Unknown sort key: " + sort));
+        boolean descending = Sort.Direction.fromOptionalString(direction)
+                .orElseThrow(() -> new InvalidRequestException("Unknown sort direction: " + direction))
+                .isDescending();
+        if (filter.minPrice() != null && filter.maxPrice() != null && filter.minPrice().compareTo(filter.maxPrice()) > 0) {
+            throw new InvalidRequestException("minPrice must not be above maxPrice");
+        }
+        int pageSize = pageSize(size);
+        // A descending cursor cannot be mistaken for an ascending one of the same key
+        String cursorTag = descending ? sortKey.name() + "_DESC" : sortKey.name();
 
+        Long lastId = null;
+        Object lastValue = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor, cursorTag, sortKey);
+            lastId = Long.valueOf(position[0]);
+            lastValue = sortKey == ItemSortKey.PRICE ? Money.valueOf(position[1]) : position[1];
+        }
+
+        // Fetch one extra row to know whether another page follows
+        List<ItemSummaryDto> items = itemRepository.findSummaries(filter, sortKey, descending, lastId, lastValue,
+                pageSize + 1);
+        if (items.size() <= pageSize) {
+            return new ItemPageDto<>(items, null);
+        }
+        List<ItemSummaryDto> page = items.subList(0, pageSize);
+        ItemSummaryDto last = page.getLast();
+        return new ItemPageDto<>(page, encodeCursor(cursorTag, sortKey, last.id(), last.price(), last.name()));
+    }
+
+    private int pageSize(Integer size) {
+        return size == null ? catalogProperties.getDefaultPageSize()
+                : Math.clamp(size, 1, catalogProperties.getMaxPageSize());
+    }
+
+    // Cursors are "<tag>:<last id>:<last sort value>" in URL-safe base64, so clients treat them as opaque.
+    // The tag names the order the cursor belongs to.
+    private static String encodeCursor(String tag, ItemSortKey sortKey, Long lastId, Money lastPrice, String lastName) {
+        String value = switch (sortKey) {
+            case ID -> "";
+            case PRICE -> String.valueOf(lastPrice);
+            case NAME -> lastName;
+        };
+        String raw = tag + ":" + lastId + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, String tag, ItemSortKey sortKey) {
         try {
-            Files.copy(filePath, newFilePath);
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to rename file: " + e.getMessage());
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || !parts[0].equals(tag)) {
+                throw new InvalidCursorException();
+            }
+            Long.parseLong(parts[1]);
+            if (sortKey == ItemSortKey.PRICE) {
+                Money.valueOf(parts[2]);
+            }
+            return new String[]{parts[1], parts[2]};
+        } catch (IllegalArgumentException e) { // bad base64, NumberFormatException or a malformed price
+            throw new InvalidCursorException(e);
+        }
+    }
+
+    /**
+     * Returns the name the uploaded temp file is stored under. The file itself is only moved there once
+     * the calling transaction commits, so an item that fails to save leaves the upload untouched. A temp
+     * file that does not exist fails the call with InvalidUploadException, before anything is saved.
+     * Thumbnails and the compressed variant are queued right after the move.
+     */
+    public String handleImageUpload(String filename) {
+        if (imageStore.isEnabled()) {
+            String imageKey = imageStore.reference(filename);
+            fileWorkAfterCommit("store image " + filename, () -> {
+                imageStore.storeFile(filename, imageKey);
+                imageDerivativeService.generate(imageKey);
+            });
+            return imageKey;
         }
 
+        if (!storageService.exists(filename)) {
+            throw new InvalidUploadException("Uploaded file not found: " + filename);
+        }
+        String newFilename = filename.replaceFirst("tempFile", "");
+
+        fileWorkAfterCommit("move image " + filename, () -> {
+            storageService.move(filename, newFilename);
+            imageDerivativeService.generate(newFilename);
+        });
+
         return newFilename;
     }
 
+    // Like handleImageUpload, the file is only touched once the calling transaction commits
     public void handleImageDelete(String filename) {
-        Path filePath = path.resolve(filename);
-        try {
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete file: " + e.getMessage());
+        if (imageStore.isContentAddressed(filename)) {
+            // Shared with other items, only removed with the last reference
+            fileWorkAfterCommit("release image " + filename, () -> {
+                if (imageStore.release(filename)) {
+                    imageDerivativeService.delete(filename);
+                }
+            });
+            return;
+        }
+        fileWorkAfterCommit("delete image " + filename, () -> {
+            storageService.delete(filename);
+            imageDerivativeService.delete(filename);
+        });
+    }
+
+    /**
+     * The item is saved by the time file work runs, so a failure is only logged. Thrown from afterCommit
+     * it would turn the saved write into a 500, and Spring would skip the callbacks registered after it,
+     * such as the cache refresh and the search indexing.
+     */
+    private static void fileWorkAfterCommit(String action, Runnable work) {
+        afterCommit(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Failed to {} after commit", action, e);
+            }
+        });
+    }
+
+    // Runs the work right away when there is no transaction, as in plain unit tests
+    private static void afterCommit(Runnable work) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            work.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                work.run();
+            }
+        });
     }
 }
@@ -0,0 +1,8 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class OrderNotFoundException extends RuntimeException {
+
+    public OrderNotFoundException(Long id) {
+        super("Order not found: " + id);
+    }
+}
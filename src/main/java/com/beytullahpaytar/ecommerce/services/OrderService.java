@@ -1,23 +1,64 @@
 package com.beytullahpaytar.ecommerce.services;
 
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusResultDto;
 import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderPageDto;
+import com.beytullahpaytar.ecommerce.dto.OrderSummaryDto;
+import com.beytullahpaytar.ecommerce.models.Cart;
+import com.beytullahpaytar.ecommerce.models.CartItem;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
 import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderLine;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import com.beytullahpaytar.ecommerce.outbox.OutboxEvent;
+import com.beytullahpaytar.ecommerce.outbox.OutboxService;
 import com.beytullahpaytar.ecommerce.repository.OrderRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderService {
+    public static final String ORDER_AGGREGATE = "Order";
+    public static final String ORDER_CREATED = "OrderCreated";
+    public static final String ORDER_STATUS_CHANGED = "OrderStatusChanged";
+
     private final OrderRepository orderRepository;
     private final CartService cartService;
+    private final OrderProperties orderProperties;
+    private final OutboxService outboxService;
+    private final InventoryService inventoryService;
 
-    public OrderService(OrderRepository orderRepository, CartService cartService) {
+    public OrderService(OrderRepository orderRepository, CartService cartService, OrderProperties orderProperties,
+                        OutboxService outboxService, InventoryService inventoryService) {
         this.orderRepository = orderRepository;
         this.cartService = cartService;
+        this.orderProperties = orderProperties;
+        this.outboxService = outboxService;
+        this.inventoryService = inventoryService;
     }
 
-    public void createOrder(OrderDto orderDto) {
+    /**
+     * Checks out the shopper's open cart in one transaction. The cart row stays locked until commit, so
+     * concurrent adds and a second checkout of the same cart wait and then see it completed. Stock for
+     * every line is reserved first, a line that cannot be covered fails the checkout and releases the rest.
+     * The lines are copied into the order with the prices they were bought at, and the total is their sum,
+     * taken in Java over the lines the reservation has already loaded.
+     * The order and its lines (one batch insert), the cart update and the OrderCreated outbox event are
+     * flushed together at commit.
+     */
+    @Transactional
+    public Order createOrder(String cartToken, OrderDto orderDto) {
+        Cart cart = cartService.lockOpenCart(cartToken);
+        inventoryService.reserve(cart);
+
         // Create a new order
         Order order = new Order();
         order.setName(orderDto.name());
@@ -26,30 +67,114 @@ public class OrderService {
         order.setEmail(orderDto.email());
         order.setPhoneNumber(orderDto.phoneNumber());
 
-        order.setCart(cartService.getCart());
-        order.setTotalPrice(cartService.getTotalPrice());
-        order.setOrderStatus("PENDING");
-
-        System.out.println("Order Status: " + order.getOrderStatus());
+        order.setCartId(cart.getId());
+        Money totalPrice = Money.ZERO;
+        for (CartItem cartItem : cart.getCartItems()) {
+            Item item = cartItem.getItem();
+            if (item != null) {
+                order.getLines().add(new OrderLine(null, order, item.getId(), item.getName(), item.getPrice(),
+                        cartItem.getQuantity()));
+                totalPrice = totalPrice.plus(item.getPrice().times(cartItem.getQuantity()));
+            }
+        }
+        order.setTotalPrice(totalPrice);
+        order.setOrderStatus(OrderStatus.PENDING);
 
         // Save the order to the database
         orderRepository.save(order);
-        cartService.completeCart();
+        cartService.completeCart(cart);
+        outboxService.record(ORDER_AGGREGATE, order.getId(), ORDER_CREATED, Map.of(
+                "orderId", order.getId(),
+                "orderStatus", order.getOrderStatus(),
+                "totalPrice", order.getTotalPrice(),
+                "email", order.getEmail()));
+        return order;
     }
 
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
+    /**
+     * Lists orders page by page, either seeking past afterId or, without it, skipping whole pages up to
+     * order.max-page-offset rows deep.
+     * Orders come as summaries unless includeLines asks for full orders with their lines.
+     */
+    public OrderPageDto<?> getOrderPage(OrderFilter filter, Long afterId, int page, Integer size, boolean includeLines) {
+        int pageSize = size == null ? orderProperties.getDefaultPageSize()
+                : Math.clamp(size, 1, orderProperties.getMaxPageSize());
+        // In long, so a huge page number cannot overflow into a negative offset
+        long offset = afterId == null ? (long) Math.max(page, 0) * pageSize : 0;
+        if (offset > orderProperties.getMaxPageOffset()) {
+            throw new InvalidRequestException("page must not skip more than " + orderProperties.getMaxPageOffset()
+                    + " orders, use afterId to read further");
+        }
+
+        // Fetch one extra row to know whether another page follows
+        List<OrderSummaryDto> summaries = orderRepository.findSummaries(filter, afterId, (int) offset, pageSize + 1);
+        Long nextAfterId = null;
+        if (summaries.size() > pageSize) {
+            summaries = summaries.subList(0, pageSize);
+            nextAfterId = summaries.getLast().id();
+        }
+
+        if (!includeLines) {
+            return new OrderPageDto<>(summaries, nextAfterId);
+        }
+        List<Long> ids = summaries.stream().map(OrderSummaryDto::id).toList();
+        return new OrderPageDto<>(orderRepository.findWithLinesByIdInOrderByIdAsc(ids), nextAfterId);
+    }
+
     public Order getOrderById(Long id) {
         return orderRepository.findById(id).orElse(null);
     }
 
-    public void updateOrderStatus(Long id, String status) {
-        Order order = orderRepository.findById(id).orElse(null);
-        if (order != null) {
-            order.setOrderStatus(status);
-            orderRepository.save(order);
+    /**
+     * Moves an order to the target status with one conditional UPDATE, never loading the order.
+     * With an expected status the update only applies while the order is still in it, otherwise
+     * it applies from any status that may legally move to the target.
+     */
+    @Transactional
+    public void updateOrderStatus(Long id, OrderStatus target, OrderStatus expected) {
+        int updated = orderRepository.updateStatus(id, sourceStatuses(target, expected), target);
+        if (updated == 0) {
+            // Only pay for the extra read when explaining why nothing changed
+            OrderStatus current = orderRepository.findStatusById(id)
+                    .orElseThrow(() -> new OrderNotFoundException(id));
+            throw new OrderStatusConflictException("Order " + id + " cannot move from " + current + " to " + target);
+        }
+        outboxService.record(ORDER_AGGREGATE, id, ORDER_STATUS_CHANGED, statusChanged(id, target));
+    }
+
+    /**
+     * Moves a batch of orders to the target status in a single statement. Orders that are missing or
+     * cannot make the transition are skipped and reported rather than failing the whole batch.
+     */
+    @Transactional
+    public BulkOrderStatusResultDto updateOrderStatuses(List<Long> ids, OrderStatus target, OrderStatus expected) {
+        List<Short> fromCodes = sourceStatuses(target, expected).stream().map(OrderStatus::getCode).toList();
+        List<Long> updated = orderRepository.updateStatuses(ids, fromCodes, target.getCode());
+
+        outboxService.recordAll(updated.stream()
+                .map(id -> new OutboxEvent(ORDER_AGGREGATE, id, ORDER_STATUS_CHANGED,
+                        outboxService.toJson(statusChanged(id, target))))
+                .toList());
+
+        Set<Long> updatedIds = new HashSet<>(updated);
+        List<Long> skipped = ids.stream().distinct().filter(id -> !updatedIds.contains(id)).toList();
+        return new BulkOrderStatusResultDto(updated, skipped);
+    }
+
+    private static Map<String, Object> statusChanged(Long id, OrderStatus target) {
+        return Map.of("orderId", id, "orderStatus", target);
+    }
+
+    private Set<OrderStatus> sourceStatuses(OrderStatus target, OrderStatus expected) {
+        Set<OrderStatus> sources = expected == null ? target.previousStatuses() : Set.of(expected);
+        if (sources.isEmpty() || (expected != null && !expected.canTransitionTo(target))) {
+            throw new OrderStatusConflictException("Orders cannot move "
+                    + (expected == null ? "" : "from " + expected + " ") + "to " + target);
         }
+        return sources;
     }
 }
@@ -0,0 +1,8 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class OrderStatusConflictException extends RuntimeException {
+
+    public OrderStatusConflictException(String message) {
+        super(message);
+    }
+}
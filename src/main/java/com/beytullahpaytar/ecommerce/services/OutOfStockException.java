@@ -0,0 +1,8 @@
+package com.beytullahpaytar.ecommerce.services;
+
+public class OutOfStockException extends RuntimeException {
+
+    public OutOfStockException(Long itemId, int quantity) {
+        super("Not enough stock for item " + itemId + " (requested " + quantity + ")");
+    }
+}
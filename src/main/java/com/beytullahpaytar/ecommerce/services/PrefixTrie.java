@@ -0,0 +1,262 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable prefix trie over item names with the best suggestions of every node computed up front, so a
+ * lookup is one walk down the trie and a copy of a few entries. A name is reachable from each of its words,
+ * "Leather Boots" under "leather boots" and "boots". Nodes are numbered breadth first and kept in parallel
+ * primitive arrays: the children of a node are consecutive, so one offset per node finds them, and their
+ * labels are sorted for a binary search. Suggestions are entry ordinals in a shared int array, and a node
+ * on a chain with no name ending in it points at the suggestions of its parent instead of a copy.
+ */
+final class PrefixTrie {
+
+    // Shorter names first, they are the closest completion of what was typed so far
+    static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> entry.name().length())
+            .thenComparing(Entry::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(Entry::id);
+
+    private final int maxKeyLength;
+
+    // Entries in RANKING order, an ordinal is an index into these
+    private final long[] ids;
+    private final String[] names;
+
+    // Node n has the children childStart[n] until childStart[n + 1], node 0 is the root
+    private final char[] labels;
+    private final int[] childStart;
+
+    // Ordinals of the best entries below node n, topCount[n] of them from top[topStart[n]], best first
+    private final int[] topStart;
+    private final byte[] topCount;
+    private final int[] top;
+
+    record Entry(long id, String name) {
+    }
+
+    private PrefixTrie(int maxKeyLength, long[] ids, String[] names, char[] labels, int[] childStart,
+                       int[] topStart, byte[] topCount, int[] top) {
+        this.maxKeyLength = maxKeyLength;
+        this.ids = ids;
+        this.names = names;
+        this.labels = labels;
+        this.childStart = childStart;
+        this.topStart = topStart;
+        this.topCount = topCount;
+        this.top = top;
+    }
+
+    // The name from each of its words on, cut to maxKeyLength
+    static List<String> keys(String name, int maxKeyLength) {
+        List<String> tokens = ItemSearchIndex.tokenize(name);
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String key = String.join(" ", tokens.subList(i, tokens.size()));
+            keys.add(key.length() > maxKeyLength ? key.substring(0, maxKeyLength) : key);
+        }
+        return keys;
+    }
+
+    // Typed text in the form of the keys, so "Leather  BO" looks up "leather bo"
+    static String normalize(String query, int maxKeyLength) {
+        String prefix = String.join(" ", ItemSearchIndex.tokenize(query));
+        return prefix.length() > maxKeyLength ? prefix.substring(0, maxKeyLength) : prefix;
+    }
+
+    static boolean matches(String name, String prefix, int maxKeyLength) {
+        return keys(name, maxKeyLength).stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
+    // At most 127 suggestions per node
+    static PrefixTrie build(List<Entry> entries, int suggestions, int maxKeyLength) {
+        List<Entry> ranked = new ArrayList<>(entries);
+        ranked.sort(RANKING);
+        long[] ids = new long[ranked.size()];
+        String[] names = new String[ranked.size()];
+        List<Key> keyList = new ArrayList<>();
+        for (int ordinal = 0; ordinal < ranked.size(); ordinal++) {
+            ids[ordinal] = ranked.get(ordinal).id();
+            names[ordinal] = ranked.get(ordinal).name();
+            for (String key : keys(names[ordinal], maxKeyLength)) {
+                keyList.add(new Key(key, ordinal));
+            }
+        }
+        // Sorted keys put every node's keys in one range, those ending at the node come first
+        keyList.sort(Comparator.comparing(Key::text).thenComparingInt(Key::ordinal));
+        String[] keys = new String[keyList.size()];
+        int[] ordinals = new int[keyList.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyList.get(i).text();
+            ordinals[i] = keyList.get(i).ordinal();
+        }
+        keyList = null; // only the arrays are needed from here on
+
+        // Breadth first: key range, depth and inherited suggestions (start and count, or -1) of every node
+        IntArray nodes = new IntArray();
+        nodes.add(0, keys.length, 0, -1, 0);
+        StringBuilder labels = new StringBuilder().append('\0');
+        IntArray childStart = new IntArray();
+        IntArray topStart = new IntArray();
+        IntArray topCount = new IntArray();
+        IntArray top = new IntArray();
+        int[] best = new int[Math.clamp(suggestions, 1, Byte.MAX_VALUE)];
+        int nodeCount = 1;
+        for (int node = 0; node < nodeCount; node++) {
+            int lo = nodes.get(5 * node);
+            int hi = nodes.get(5 * node + 1);
+            int depth = nodes.get(5 * node + 2);
+            int start = nodes.get(5 * node + 3);
+            int count = nodes.get(5 * node + 4);
+            if (start < 0) {
+                start = top.size();
+                count = selectBest(ordinals, lo, hi, best);
+                top.addAll(best, count);
+            }
+            childStart.add(nodeCount);
+            topStart.add(start);
+            topCount.add(count);
+
+            int i = lo;
+            while (i < hi && keys[i].length() == depth) {
+                i++;
+            }
+            while (i < hi) {
+                char label = keys[i].charAt(depth);
+                int j = i + 1;
+                while (j < hi && keys[j].charAt(depth) == label) {
+                    j++;
+                }
+                // The only child with the same keys has the same suggestions
+                boolean sameKeys = i == lo && j == hi;
+                nodes.add(i, j, depth + 1, sameKeys ? start : -1, sameKeys ? count : 0);
+                labels.append(label);
+                nodeCount++;
+                i = j;
+            }
+        }
+        childStart.add(nodeCount);
+
+        char[] labelArray = new char[labels.length()];
+        labels.getChars(0, labels.length(), labelArray, 0);
+        byte[] topCountArray = new byte[topCount.size()];
+        for (int node = 0; node < topCountArray.length; node++) {
+            topCountArray[node] = (byte) topCount.get(node);
+        }
+        return new PrefixTrie(maxKeyLength, ids, names, labelArray, childStart.toArray(), topStart.toArray(),
+                topCountArray, top.toArray());
+    }
+
+    // The smallest distinct ordinals of the range into best, sorted, returns how many there are
+    private static int selectBest(int[] ordinals, int lo, int hi, int[] best) {
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            int ordinal = ordinals[i];
+            if (count == best.length && ordinal >= best[count - 1]) {
+                continue;
+            }
+            int position = Arrays.binarySearch(best, 0, count, ordinal);
+            if (position >= 0) {
+                continue; // the same name through another of its words
+            }
+            position = -position - 1;
+            int end = Math.min(count, best.length - 1);
+            System.arraycopy(best, position, best, position + 1, end - position);
+            best[position] = ordinal;
+            if (count < best.length) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The best entries with a key starting with the normalized prefix, best first
+    List<Entry> lookup(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && i < maxKeyLength; i++) {
+            node = child(node, prefix.charAt(i));
+            if (node < 0) {
+                return List.of();
+            }
+        }
+        List<Entry> entries = new ArrayList<>(topCount[node]);
+        for (int i = topStart[node]; i < topStart[node] + topCount[node]; i++) {
+            entries.add(new Entry(ids[top[i]], names[top[i]]));
+        }
+        return entries;
+    }
+
+    private int child(int node, char label) {
+        int lo = childStart[node];
+        int hi = childStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labels[mid] < label) {
+                lo = mid + 1;
+            } else if (labels[mid] > label) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    int nodeCount() {
+        return labels.length;
+    }
+
+    // Bytes of the arrays, without the names which are shared with the rest of the application
+    long memoryBytes() {
+        return 2L * labels.length + 4L * childStart.length + 4L * topStart.length + topCount.length + 4L * top.length
+                + 8L * ids.length + 4L * names.length;
+    }
+
+    private record Key(String text, int ordinal) {
+    }
+
+    // Growable int array, so building never boxes
+    private static final class IntArray {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void add(int... values) {
+            for (int value : values) {
+                add(value);
+            }
+        }
+
+        void addAll(int[] source, int count) {
+            for (int i = 0; i < count; i++) {
+                add(source[i]);
+            }
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Units of one item held in memory, spread over several stripes so concurrent takes mostly
+ * CAS different slots instead of all spinning on one. Never goes below zero.
+ * Each stripe also records the generation its units belong to. reset() starts a new one, so units
+ * given back by checkouts from before the reset are dropped instead of landing on top of the new stock.
+ */
+class StripedStockCounter {
+
+    // Returned by tryTake when the counter does not hold enough units
+    static final int NONE = -1;
+
+    // Generation in the high 32 bits, units in the low 32 bits
+    private final AtomicLongArray stripes;
+    private final int mask;
+    private volatile int generation;
+
+    StripedStockCounter(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    private static long pack(int generation, int units) {
+        return ((long) generation << 32) | (units & 0xFFFFFFFFL);
+    }
+
+    private static int generationOf(long stripe) {
+        return (int) (stripe >>> 32);
+    }
+
+    private static int unitsOf(long stripe) {
+        return (int) stripe;
+    }
+
+    private int home() {
+        return (int) Thread.currentThread().threadId() & mask;
+    }
+
+    // Takes quantity units if the counter holds that many, starting from the calling thread's stripe.
+    // Returns the generation they were taken from, to hand back with add if the checkout does not go through.
+    int tryTake(int quantity) {
+        int start = home();
+        for (int i = 0; i < stripes.length(); i++) {
+            int stripe = (start + i) & mask;
+            long value = stripes.get(stripe);
+            while (unitsOf(value) >= quantity) {
+                if (stripes.compareAndSet(stripe, value, value - quantity)) {
+                    return generationOf(value);
+                }
+                value = stripes.get(stripe);
+            }
+        }
+        // No single stripe had enough, the units may still add up across stripes
+        int current = generation;
+        int drained = drain(current);
+        if (drained >= quantity) {
+            add(drained - quantity, current);
+            return current;
+        }
+        add(drained, current);
+        return NONE;
+    }
+
+    void add(int quantity) {
+        add(quantity, generation);
+    }
+
+    // Adds units of the given generation, they are dropped if the counter has been reset since
+    void add(int quantity, int generation) {
+        if (quantity <= 0) {
+            return;
+        }
+        int stripe = home();
+        long value = stripes.get(stripe);
+        while (generationOf(value) == generation) {
+            if (stripes.compareAndSet(stripe, value, value + quantity)) {
+                return;
+            }
+            value = stripes.get(stripe);
+        }
+    }
+
+    // Empties the counter and returns what it held
+    int drain() {
+        return drain(generation);
+    }
+
+    private int drain(int generation) {
+        int total = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            long value = stripes.get(i);
+            while (generationOf(value) == generation && unitsOf(value) > 0) {
+                if (stripes.compareAndSet(i, value, pack(generation, 0))) {
+                    total += unitsOf(value);
+                    break;
+                }
+                value = stripes.get(i);
+            }
+        }
+        return total;
+    }
+
+    // Drops every unit and starts a new generation. Callers hold the counter's monitor, as for refills.
+    void reset() {
+        int next = generation + 1;
+        generation = next;
+        for (int i = 0; i < stripes.length(); i++) {
+            stripes.set(i, pack(next, 0));
+        }
+    }
+
+    int available() {
+        int total = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            total += unitsOf(stripes.get(i));
+        }
+        return total;
+    }
+}
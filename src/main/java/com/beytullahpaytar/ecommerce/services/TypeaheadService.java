@@ -0,0 +1,119 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
+import com.beytullahpaytar.ecommerce.dto.ItemSuggestionDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Search-as-you-type over item names from an in-process PrefixTrie, without a database round trip.
+ * The trie is immutable: names written through ItemService are kept aside and merged into every lookup,
+ * and the trie is rebuilt from the names in memory once in a while to take them in.
+ */
+@Service
+public class TypeaheadService {
+
+    private static final Logger log = LoggerFactory.getLogger(TypeaheadService.class);
+
+    private final ItemRepository itemRepository;
+    private final SearchProperties properties;
+
+    // Current name of every item, the trie is rebuilt from these
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+    // Written since the trie was built
+    private final Map<Long, String> pending = new ConcurrentHashMap<>();
+
+    private volatile PrefixTrie trie;
+
+    public TypeaheadService(ItemRepository itemRepository, SearchProperties properties) {
+        this.itemRepository = itemRepository;
+        this.properties = properties;
+        this.trie = PrefixTrie.build(List.of(), properties.getTypeaheadSuggestions(),
+                properties.getTypeaheadMaxKeyLength());
+    }
+
+    public List<ItemSuggestionDto> suggest(String query) {
+        int maxKeyLength = properties.getTypeaheadMaxKeyLength();
+        String prefix = PrefixTrie.normalize(query, maxKeyLength);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        List<PrefixTrie.Entry> entries = new ArrayList<>();
+        for (PrefixTrie.Entry entry : trie.lookup(prefix)) {
+            if (!pending.containsKey(entry.id())) { // renamed since, its current name is checked below
+                entries.add(entry);
+            }
+        }
+        if (!pending.isEmpty()) {
+            pending.forEach((id, name) -> {
+                if (PrefixTrie.matches(name, prefix, maxKeyLength)) {
+                    entries.add(new PrefixTrie.Entry(id, name));
+                }
+            });
+            entries.sort(PrefixTrie.RANKING);
+        }
+        return entries.stream()
+                .limit(properties.getTypeaheadSuggestions())
+                .map(entry -> new ItemSuggestionDto(entry.id(), entry.name()))
+                .toList();
+    }
+
+    // Called with the committed state of an item, shows up in suggestions right away
+    public void index(Item item) {
+        if (item.getId() == null) {
+            return;
+        }
+        names.put(item.getId(), item.getName());
+        pending.put(item.getId(), item.getName());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long lastId = 0;
+        List<Item> batch;
+        while (!(batch = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId,
+                Limit.of(properties.getRebuildBatchSize()))).isEmpty()) {
+            for (Item item : batch) {
+                names.putIfAbsent(item.getId(), item.getName()); // an item written meanwhile has its newer name there
+            }
+            lastId = batch.getLast().getId();
+        }
+        rebuild();
+    }
+
+    // Pending names stay merged into lookups until a rebuild has taken them in
+    @Scheduled(fixedDelayString = "${search.typeahead-rebuild-interval:5s}")
+    public void rebuildIfChanged() {
+        if (!pending.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    synchronized void rebuild() {
+        long startNanos = System.nanoTime();
+        Map<Long, String> takenIn = new HashMap<>(pending);
+        List<PrefixTrie.Entry> entries = new ArrayList<>(names.size());
+        names.forEach((id, name) -> entries.add(new PrefixTrie.Entry(id, name)));
+        PrefixTrie rebuilt = PrefixTrie.build(entries, properties.getTypeaheadSuggestions(),
+                properties.getTypeaheadMaxKeyLength());
+        trie = rebuilt;
+        // A name written again during the build stays pending
+        takenIn.forEach(pending::remove);
+        log.debug("Typeahead trie rebuilt with {} items, {} nodes, {} KiB in {} ms", rebuilt.size(),
+                rebuilt.nodeCount(), rebuilt.memoryBytes() / 1024, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+}
@@ -0,0 +1,127 @@
+-- Runs on every startup after Hibernate has updated the schema (spring.jpa.defer-datasource-initialization),
+-- for changes ddl-auto=update cannot make on its own. Every statement must be safe to run repeatedly.
+-- Statements are separated by ^; so that function bodies can contain plain semicolons.
+
+-- carts, cart_items, orders: ids moved from IDENTITY to sequences, start the sequences past the existing rows.
+-- Only ever moves a sequence forward so blocks already handed out to running instances stay valid.
+SELECT setval('carts_seq', greatest((SELECT coalesce(max(id), 0) FROM carts), (SELECT last_value FROM carts_seq)))^;
+
+SELECT setval('cart_items_seq', greatest((SELECT coalesce(max(id), 0) FROM cart_items), (SELECT last_value FROM cart_items_seq)))^;
+
+SELECT setval('orders_seq', greatest((SELECT coalesce(max(id), 0) FROM orders), (SELECT last_value FROM orders_seq)))^;
+
+-- cart_items: one line per (cart, item), merging lines that were duplicated before the unique constraint existed
+UPDATE cart_items ci
+SET quantity = duplicates.total
+FROM (SELECT min(id) AS keep_id, sum(quantity) AS total
+      FROM cart_items
+      GROUP BY cart_id, item_id
+      HAVING count(*) > 1) duplicates
+WHERE ci.id = duplicates.keep_id^;
+
+DELETE FROM cart_items ci
+USING cart_items other
+WHERE ci.cart_id = other.cart_id
+  AND ci.item_id = other.item_id
+  AND ci.id > other.id^;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cart_items_cart_item ON cart_items (cart_id, item_id)^;
+
+-- carts: at most one open cart per token. Open carts duplicated by the old check-then-insert in
+-- CartService.getCart are merged into the oldest one of their token and removed, in one block so a
+-- failed run cannot add the same lines twice.
+DO $$
+BEGIN
+    CREATE TEMPORARY TABLE duplicate_open_carts AS
+    SELECT id, keep_id
+    FROM (SELECT id, min(id) OVER (PARTITION BY token) AS keep_id
+          FROM carts
+          WHERE is_completed = false AND token IS NOT NULL) open_carts
+    WHERE id <> keep_id;
+
+    INSERT INTO cart_items (id, cart_id, item_id, quantity)
+    SELECT nextval('cart_items_seq'), merged.keep_id, merged.item_id, merged.quantity
+    FROM (SELECT d.keep_id, ci.item_id, sum(ci.quantity) AS quantity
+          FROM cart_items ci
+          JOIN duplicate_open_carts d ON d.id = ci.cart_id
+          GROUP BY d.keep_id, ci.item_id) merged
+    ON CONFLICT (cart_id, item_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity;
+
+    DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM duplicate_open_carts);
+    DELETE FROM carts WHERE id IN (SELECT id FROM duplicate_open_carts);
+    DROP TABLE duplicate_open_carts;
+END
+$$^;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_carts_open_token ON carts (token) WHERE is_completed = false^;
+
+-- orders: order_status was free text, convert it to the smallint codes of OrderStatus.
+-- The original text is kept in order_status_text since older rows may hold values outside the enum,
+-- those fall back to PENDING.
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'orders' AND column_name = 'order_status') = 'character varying' THEN
+        ALTER TABLE orders ADD COLUMN IF NOT EXISTS order_status_text varchar(255);
+        UPDATE orders SET order_status_text = order_status;
+        ALTER TABLE orders ALTER COLUMN order_status TYPE smallint USING
+            CASE upper(trim(order_status))
+                WHEN 'PROCESSING' THEN 1
+                WHEN 'SHIPPED' THEN 2
+                WHEN 'DELIVERED' THEN 3
+                WHEN 'CANCELLED' THEN 4
+                WHEN 'CANCELED' THEN 4
+                ELSE 0
+            END;
+    END IF;
+END
+$$^;
+
+-- items: B-tree indexes for listing by price and by name, the id keeps pages stable among equal values.
+-- They replace the plain (price, id) and (name, id) indexes and carry the other columns of ItemSummaryDto,
+-- so catalog pages are served by index-only scans that never touch the descriptions in the heap.
+-- stock is left out on purpose: an indexed column would rule out HOT updates for every reservation.
+DROP INDEX IF EXISTS idx_items_price_id^;
+
+DROP INDEX IF EXISTS idx_items_name_id^;
+
+CREATE INDEX IF NOT EXISTS idx_items_price_id_listing ON items (price, id) INCLUDE (name, image_url)^;
+
+CREATE INDEX IF NOT EXISTS idx_items_name_id_listing ON items (name, id) INCLUDE (price, image_url)^;
+
+-- items.price, orders.total_price: double precision became numeric(19, 2), the column type of Money.
+-- Existing amounts are rounded to the nearest cent once; the indexes on price are rebuilt by the ALTER.
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'items' AND column_name = 'price') = 'double precision' THEN
+        ALTER TABLE items ALTER COLUMN price TYPE numeric(19, 2) USING round(price::numeric, 2);
+    END IF;
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'orders' AND column_name = 'total_price') = 'double precision' THEN
+        ALTER TABLE orders ALTER COLUMN total_price TYPE numeric(19, 2) USING round(total_price::numeric, 2);
+    END IF;
+END
+$$^;
+
+-- orders.cart_id: no longer a foreign key, orders keep their own lines so completed carts can be archived or purged
+DO $$
+DECLARE
+    constraint_name text;
+BEGIN
+    FOR constraint_name IN SELECT conname FROM pg_constraint
+                           WHERE conrelid = 'orders'::regclass AND confrelid = 'carts'::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE orders DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END
+$$^;
+
+-- order_lines: orders placed before lines were recorded get them from their carts, at the current item prices
+-- since the prices they were bought at were never kept
+INSERT INTO order_lines (id, order_id, item_id, name, unit_price, quantity)
+SELECT nextval('order_lines_seq'), o.id, i.id, i.name, i.price, ci.quantity
+FROM orders o
+JOIN cart_items ci ON ci.cart_id = o.cart_id
+JOIN items i ON i.id = ci.item_id
+WHERE NOT EXISTS (SELECT 1 FROM order_lines ol WHERE ol.order_id = o.id)
+ORDER BY o.id, ci.id^;
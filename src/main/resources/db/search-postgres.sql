@@ -0,0 +1,12 @@
+-- Only applied with search.mode=postgres, after schema-updates.sql (see spring.sql.init.schema-locations).
+-- Like there, every statement must be safe to run repeatedly.
+--
+-- items: weighted tsvector over name and description with a GIN index.
+-- 'simple' does no stemming, matching the in-memory index of ItemSearchService.
+-- The stored column is recomputed on every insert and update of an item, stock decrements included, so
+-- it is kept out of memory mode. It is not dropped there, instances sharing the database may still use it.
+ALTER TABLE items ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED^;
+
+CREATE INDEX IF NOT EXISTS idx_items_search_vector ON items USING gin (search_vector)^;
@@ -0,0 +1,150 @@
+package com.beytullahpaytar.ecommerce;
+
+import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.models.Cart;
+import com.beytullahpaytar.ecommerce.models.CartItem;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.repository.CartItemRepository;
+import com.beytullahpaytar.ecommerce.repository.CartRepository;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.beytullahpaytar.ecommerce.services.CartService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional like FullFlowTest: every thread has to commit its own adds
+@SpringBootTest
+public class CartConcurrencyTest {
+
+    private static final String CART_TOKEN = "cart-concurrency-test-token";
+    private static final int THREADS = 16;
+    private static final int ADDS_PER_THREAD = 25;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        item = new Item();
+        item.setName("Concurrency Test Product");
+        item.setDescription("Added to one cart from many threads");
+        item.setPrice(Money.valueOf("10.00"));
+        item.setImageUrl("concurrency-test.jpg");
+        itemRepository.save(item);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Cart cart = cartRepository.findFirstByTokenAndIsCompletedFalse(CART_TOKEN);
+        if (cart != null) {
+            cartRepository.delete(cart);
+        }
+        itemRepository.delete(item);
+    }
+
+    @Test
+    public void testParallelAddsOfSameItem_shouldNotLoseUpdates() throws Exception {
+        // create the cart up front so the threads only race on the cart line
+        Long cartId = cartService.getCart(CART_TOKEN).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < ADDS_PER_THREAD; j++) {
+                    cartService.addItemToCart(CART_TOKEN, new CartItemDto(item.getId(), 1));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        CartItem cartItem = cartItemRepository.findByItemIdAndCartId(item.getId(), cartId);
+        assertNotNull(cartItem);
+        assertEquals(THREADS * ADDS_PER_THREAD, cartItem.getQuantity());
+    }
+
+    @Test
+    public void testParallelFirstVisits_shouldOpenOneCart() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cartService.getCart(CART_TOKEN).getId();
+            }));
+        }
+        start.countDown();
+        Set<Long> cartIds = new HashSet<>();
+        for (Future<Long> future : futures) {
+            cartIds.add(future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(Set.of(cartRepository.findFirstByTokenAndIsCompletedFalse(CART_TOKEN).getId()), cartIds);
+    }
+
+    @Test
+    public void testParallelSingleAndBatchAdds_shouldNotLoseUpdates() throws Exception {
+        Long cartId = cartService.getCart(CART_TOKEN).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean batch = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < ADDS_PER_THREAD; j++) {
+                    if (batch) {
+                        cartService.addItemsToCart(CART_TOKEN, List.of(new CartItemDto(item.getId(), 1)));
+                    } else {
+                        cartService.addItemToCart(CART_TOKEN, new CartItemDto(item.getId(), 1));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        CartItem cartItem = cartItemRepository.findByItemIdAndCartId(item.getId(), cartId);
+        assertNotNull(cartItem);
+        assertEquals(THREADS * ADDS_PER_THREAD, cartItem.getQuantity());
+    }
+}
@@ -0,0 +1,129 @@
+package com.beytullahpaytar.ecommerce;
+
+import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.repository.CartRepository;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.beytullahpaytar.ecommerce.repository.OrderRepository;
+import com.beytullahpaytar.ecommerce.services.CartService;
+import com.beytullahpaytar.ecommerce.services.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent checkouts of separate carts, each filled with a few lines first.
+ * Run with ./gradlew benchmark against the configured database.
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class CheckoutThroughputBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS_PER_THREAD = 100;
+    private static final int WARMUP_CHECKOUTS = 50;
+    private static final int LINES_PER_CART = 3;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final List<Item> items = new ArrayList<>();
+    private final Queue<Order> orders = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < LINES_PER_CART; i++) {
+            Item item = new Item();
+            item.setName("Checkout Benchmark Product " + i);
+            item.setDescription("Used by the checkout throughput benchmark");
+            item.setPrice(new Money(1000 + 100L * i));
+            item.setImageUrl("checkout-benchmark.jpg");
+            items.add(itemRepository.save(item));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Order order : orders) {
+            orderRepository.delete(order);
+            cartRepository.deleteById(order.getCartId());
+        }
+        itemRepository.deleteAll(items);
+    }
+
+    private void checkout() {
+        String token = UUID.randomUUID().toString();
+        for (Item item : items) {
+            cartService.addItemToCart(token, new CartItemDto(item.getId(), 2));
+        }
+        orders.add(orderService.createOrder(token,
+                new OrderDto("Bench", "Mark", "bench@example.com", "123456", "Benchmark Street")));
+    }
+
+    @Test
+    public void concurrentCheckouts() throws Exception {
+        for (int i = 0; i < WARMUP_CHECKOUTS; i++) {
+            checkout();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < CHECKOUTS_PER_THREAD; j++) {
+                    checkout();
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        int checkouts = THREADS * CHECKOUTS_PER_THREAD;
+        System.out.printf("Checkout throughput: %d checkouts with %d threads in %d ms, %.1f checkouts/s%n",
+                checkouts, THREADS, elapsedNanos / 1_000_000, checkouts / (elapsedNanos / 1e9));
+
+        assertEquals(WARMUP_CHECKOUTS + checkouts, orders.size());
+        for (Order order : orders) {
+            assertTrue(cartRepository.findById(order.getCartId()).orElseThrow().getIsCompleted());
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -29,6 +30,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @Transactional
 public class FullFlowTest {
 
+    private static final String CART_TOKEN = "full-flow-test-token";
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -89,7 +92,7 @@ public class FullFlowTest {
         ItemDto itemDto = new ItemDto(
                 "Test Product",
                 "This is a test product description",
-                99.99,
+                new BigDecimal("99.99"),
                 "tempFiletest-image.jpg"
         );
 
@@ -106,14 +109,14 @@ public class FullFlowTest {
         Item createdItem = itemRepository.findItemsByName("Test Product");
         assertNotNull(createdItem);
         Long createdItemId = createdItem.getId();
-        assertEquals(99.99, createdItem.getPrice());
+        assertEquals(Money.valueOf("99.99"), createdItem.getPrice());
 
         // 2. Update the item
 
         ItemDto updatedItemDto = new ItemDto(
                 "Updated Product",
                 "Updated description",
-                129.99,
+                new BigDecimal("129.99"),
                 "tempFileupdated-image.jpg"
         );
 
@@ -126,18 +129,19 @@ public class FullFlowTest {
         Item updatedItem = itemRepository.findById(createdItemId).orElse(null);
         assertNotNull(updatedItem);
         assertEquals("Updated Product", updatedItem.getName());
-        assertEquals(129.99, updatedItem.getPrice());
+        assertEquals(Money.valueOf("129.99"), updatedItem.getPrice());
 
         // 3. Add item to cart
         CartItemDto cartItemDto = new CartItemDto(createdItemId, 2);
 
         mockMvc.perform(post("/api/cart")
+                        .header("X-Cart-Token", CART_TOKEN)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(cartItemDto)))
                 .andExpect(status().isOk());
 
         // Verify cart contains the item
-        Cart activeCart = cartRepository.findFirstByIsCompletedFalse();
+        Cart activeCart = cartRepository.findFirstByTokenAndIsCompletedFalse(CART_TOKEN);
         assertNotNull(activeCart);
         assertEquals(1, activeCart.getCartItems().size()); // Failed test, should be 1, but it is 0
         assertEquals(2, activeCart.getCartItems().getFirst().getQuantity());
@@ -152,6 +156,7 @@ public class FullFlowTest {
         );
 
         mockMvc.perform(post("/api/order")
+                        .header("X-Cart-Token", CART_TOKEN)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(orderDto)))
                 .andExpect(status().isOk());
@@ -164,8 +169,12 @@ public class FullFlowTest {
 
         assertEquals("John", createdOrder.getName());
         assertEquals("Doe", createdOrder.getSurname());
-        assertEquals("PENDING", createdOrder.getOrderStatus());
-        assertEquals(259.98, createdOrder.getTotalPrice()); // 129.99 * 2
+        assertEquals(OrderStatus.PENDING, createdOrder.getOrderStatus());
+        assertEquals(Money.valueOf("259.98"), createdOrder.getTotalPrice()); // 129.99 * 2
+        assertEquals(1, createdOrder.getLines().size());
+        assertEquals("Updated Product", createdOrder.getLines().getFirst().getName());
+        assertEquals(Money.valueOf("129.99"), createdOrder.getLines().getFirst().getUnitPrice());
+        assertEquals(2, createdOrder.getLines().getFirst().getQuantity());
 
         // Verify cart was completed
         Cart completedCart = cartRepository.findById(activeCart.getId()).orElse(null);
@@ -173,7 +182,7 @@ public class FullFlowTest {
         assertTrue(completedCart.getIsCompleted());
 
         // 5. Update order status
-        UpdateOrderStatusDto statusDto = new UpdateOrderStatusDto("SHIPPED");
+        UpdateOrderStatusDto statusDto = new UpdateOrderStatusDto(OrderStatus.SHIPPED, OrderStatus.PENDING);
 
         mockMvc.perform(put("/api/order/" + orderId + "/status")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -183,6 +192,6 @@ public class FullFlowTest {
         // Verify order status was updated
         Order updatedOrder = orderRepository.findById(orderId).orElse(null);
         assertNotNull(updatedOrder);
-        assertEquals("SHIPPED", updatedOrder.getOrderStatus());
+        assertEquals(OrderStatus.SHIPPED, updatedOrder.getOrderStatus());
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.beytullahpaytar.ecommerce;
+
+import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import com.beytullahpaytar.ecommerce.outbox.InMemoryOutboxSink;
+import com.beytullahpaytar.ecommerce.outbox.OutboxEvent;
+import com.beytullahpaytar.ecommerce.outbox.OutboxRelay;
+import com.beytullahpaytar.ecommerce.outbox.OutboxRepository;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.beytullahpaytar.ecommerce.services.CartService;
+import com.beytullahpaytar.ecommerce.services.OrderService;
+import com.beytullahpaytar.ecommerce.services.OrderStatusConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The scheduled relay is off in tests (see config/application.properties), so the test decides when events are relayed
+@SpringBootTest
+public class OutboxFlowTest {
+
+    private static final String CART_TOKEN = "outbox-flow-test-token";
+
+    @TestConfiguration
+    static class SinkConfig {
+        @Bean
+        InMemoryOutboxSink inMemoryOutboxSink() {
+            return new InMemoryOutboxSink();
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @BeforeEach
+    void setUp() {
+        // Start from an empty outbox
+        boolean more;
+        do {
+            more = outboxRelay.relayBatch();
+        } while (more);
+        sink.clear();
+    }
+
+    @Test
+    void orderChanges_shouldBeRelayedInOrder() {
+        // Arrange
+        Item item = itemRepository.save(new Item(null, "Outbox Test Product", "Relayed", Money.valueOf("10.00"), "outbox.jpg"));
+        cartService.addItemToCart(CART_TOKEN, new CartItemDto(item.getId(), 1));
+
+        // Act
+        Order order = orderService.createOrder(CART_TOKEN, new OrderDto("John", "Doe", "john@example.com", "1", "Addr"));
+        orderService.updateOrderStatus(order.getId(), OrderStatus.PROCESSING, OrderStatus.PENDING);
+        assertThrows(OrderStatusConflictException.class,
+                () -> orderService.updateOrderStatus(order.getId(), OrderStatus.DELIVERED, null));
+
+        // Assert - nothing is sent until the relay runs, and the failed change left no event behind
+        assertTrue(sink.getEvents().isEmpty());
+        List<OutboxEvent> pending = outboxRepository.findAll().stream()
+                .filter(e -> e.getAggregateId().equals(order.getId()))
+                .toList();
+        assertEquals(2, pending.size());
+
+        outboxRelay.relayBatch();
+
+        List<String> types = sink.getEvents().stream()
+                .filter(e -> e.getAggregateId().equals(order.getId()))
+                .map(OutboxEvent::getEventType)
+                .toList();
+        assertEquals(List.of(OrderService.ORDER_CREATED, OrderService.ORDER_STATUS_CHANGED), types);
+        assertTrue(sink.getEvents().getLast().getPayload().contains("\"orderStatus\":\"PROCESSING\""));
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    void failedEvent_shouldHoldBackTheLaterEventsOfItsOrder() {
+        // Arrange
+        Item item = itemRepository.save(new Item(null, "Outbox Retry Product", "Relayed", Money.valueOf("10.00"), "outbox.jpg"));
+        cartService.addItemToCart(CART_TOKEN, new CartItemDto(item.getId(), 1));
+        Order order = orderService.createOrder(CART_TOKEN, new OrderDto("John", "Doe", "john@example.com", "1", "Addr"));
+        orderService.updateOrderStatus(order.getId(), OrderStatus.PROCESSING, OrderStatus.PENDING);
+        OutboxEvent created = outboxRepository.findAll().stream()
+                .filter(e -> e.getAggregateId().equals(order.getId()))
+                .filter(e -> e.getEventType().equals(OrderService.ORDER_CREATED))
+                .findFirst().orElseThrow();
+
+        // Act - the first attempt fails, the retry waits for its backoff and the status change waits for the retry
+        sink.failOn(created.getId());
+        outboxRelay.relayBatch();
+        sink.failOn(null);
+        outboxRelay.relayBatch();
+
+        // Assert
+        assertTrue(sink.getEvents().stream().noneMatch(e -> e.getAggregateId().equals(order.getId())));
+
+        OutboxEvent retry = outboxRepository.findById(created.getId()).orElseThrow();
+        assertEquals(1, retry.getAttempts());
+        assertNull(retry.getClaimedUntil());
+        retry.setNextAttemptAt(Instant.now().minusSeconds(1));
+        outboxRepository.save(retry);
+        outboxRelay.relayBatch();
+
+        List<String> types = sink.getEvents().stream()
+                .filter(e -> e.getAggregateId().equals(order.getId()))
+                .map(OutboxEvent::getEventType)
+                .toList();
+        assertEquals(List.of(OrderService.ORDER_CREATED, OrderService.ORDER_STATUS_CHANGED), types);
+    }
+}
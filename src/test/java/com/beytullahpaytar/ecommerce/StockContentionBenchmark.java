@@ -0,0 +1,153 @@
+package com.beytullahpaytar.ecommerce;
+
+import com.beytullahpaytar.ecommerce.config.InventoryProperties;
+import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.repository.CartRepository;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.beytullahpaytar.ecommerce.repository.OrderRepository;
+import com.beytullahpaytar.ecommerce.services.CartService;
+import com.beytullahpaytar.ecommerce.services.InventoryService;
+import com.beytullahpaytar.ecommerce.services.OrderService;
+import com.beytullahpaytar.ecommerce.services.OutOfStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent checkouts all buying the same item, once with conditional row updates and once with the
+ * item sold from an in-memory lease. More checkouts are attempted than there is stock, exactly the
+ * stock must sell. Run with ./gradlew benchmark against the configured database.
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class StockContentionBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS_PER_THREAD = 50;
+    private static final int STOCK = THREADS * CHECKOUTS_PER_THREAD * 3 / 4;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryProperties inventoryProperties;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Item item;
+    private final Queue<Order> orders = new ConcurrentLinkedQueue<>();
+    private final List<Long> cartIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        item = new Item();
+        item.setName("Stock Benchmark Product");
+        item.setDescription("Used by the stock contention benchmark");
+        item.setPrice(Money.valueOf("10.00"));
+        item.setImageUrl("stock-benchmark.jpg");
+        item = itemRepository.save(item);
+        inventoryService.setStock(item.getId(), STOCK);
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventoryProperties.getHotItemIds().remove(item.getId());
+        for (Order order : orders) {
+            orderRepository.delete(order);
+        }
+        cartRepository.deleteAllById(cartIds);
+        itemRepository.delete(item);
+    }
+
+    @Test
+    public void rowUpdates() throws Exception {
+        run("row updates");
+    }
+
+    @Test
+    public void inMemoryLease() throws Exception {
+        inventoryProperties.getHotItemIds().add(item.getId());
+        run("in-memory lease");
+    }
+
+    private void run(String mode) throws Exception {
+        // Carts are filled up front so only checkouts compete
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < THREADS * CHECKOUTS_PER_THREAD; i++) {
+            String token = UUID.randomUUID().toString();
+            cartService.addItemToCart(token, new CartItemDto(item.getId(), 1));
+            cartIds.add(cartService.getCart(token).getId());
+            tokens.add(token);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<String> slice = tokens.subList(i * CHECKOUTS_PER_THREAD, (i + 1) * CHECKOUTS_PER_THREAD);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (String token : slice) {
+                    try {
+                        orders.add(orderService.createOrder(token,
+                                new OrderDto("Bench", "Mark", "bench@example.com", "123456", "Benchmark Street")));
+                    } catch (OutOfStockException e) {
+                        soldOut.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+        inventoryService.flushHotStock();
+
+        int checkouts = THREADS * CHECKOUTS_PER_THREAD;
+        System.out.printf("Stock contention (%s): %d checkouts of one item with %d threads in %d ms, %.1f checkouts/s%n",
+                mode, checkouts, THREADS, elapsedNanos / 1_000_000, checkouts / (elapsedNanos / 1e9));
+
+        assertEquals(STOCK, orders.size());
+        assertEquals(checkouts - STOCK, soldOut.get());
+        assertEquals(0, itemRepository.findById(item.getId()).orElseThrow().getStock());
+    }
+}
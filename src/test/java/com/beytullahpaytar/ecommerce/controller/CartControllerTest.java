@@ -1,11 +1,14 @@
 package com.beytullahpaytar.ecommerce.controller;
 
 import com.beytullahpaytar.ecommerce.dto.CartItemDto;
+import com.beytullahpaytar.ecommerce.dto.CartItemsDto;
 import com.beytullahpaytar.ecommerce.models.Cart;
 import com.beytullahpaytar.ecommerce.models.CartItem;
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
 import com.beytullahpaytar.ecommerce.services.CartService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -24,6 +27,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 class CartControllerTest {
 
+    private static final String TOKEN = "test-cart-token";
+
     private MockMvc mockMvc;
 
     @Mock
@@ -46,20 +51,43 @@ class CartControllerTest {
         Cart cart = new Cart();
         cart.setId(1L);
         List<CartItem> items = new ArrayList<>();
-        Item item = new Item(10L, "Test Item", "Description", 99.99, "image.jpg");
+        Item item = new Item(10L, "Test Item", "Description", Money.valueOf("99.99"), "image.jpg");
         items.add(new CartItem(1L, item, 2, cart));
         cart.setCartItems(items);
 
-        when(cartService.getCart()).thenReturn(cart);
+        when(cartService.getCartWithItems(TOKEN)).thenReturn(cart);
 
         // Act & Assert
-        mockMvc.perform(get("/api/cart"))
+        mockMvc.perform(get("/api/cart").header(CartTokens.HEADER, TOKEN))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.cartItems.length()").value(1))
                 .andExpect(jsonPath("$.cartItems[0].item.name").value("Test Item"));
 
-        verify(cartService, times(1)).getCart();
+        verify(cartService, times(1)).getCartWithItems(TOKEN);
+    }
+
+    @Test
+    void getCart_shouldIssueTokenWhenMissing() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/cart"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(CartTokens.HEADER))
+                .andExpect(cookie().exists(CartTokens.COOKIE))
+                .andExpect(cookie().httpOnly(CartTokens.COOKIE, true));
+
+        verify(cartService, times(1)).getCartWithItems(anyString());
+    }
+
+    @Test
+    void getCart_shouldReadTokenFromCookie() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/cart").cookie(new Cookie(CartTokens.COOKIE, TOKEN)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CartTokens.HEADER, TOKEN))
+                .andExpect(cookie().doesNotExist(CartTokens.COOKIE));
+
+        verify(cartService, times(1)).getCartWithItems(TOKEN);
     }
 
     @Test
@@ -70,12 +98,13 @@ class CartControllerTest {
 
         // Act & Assert
         mockMvc.perform(post("/api/cart")
+                        .header(CartTokens.HEADER, TOKEN)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Item added to cart"));
 
-        verify(cartService, times(1)).addItemToCart(any(CartItemDto.class));
+        verify(cartService, times(1)).addItemToCart(eq(TOKEN), any(CartItemDto.class));
     }
 
     @Test
@@ -90,17 +119,77 @@ class CartControllerTest {
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
 
-        verify(cartService, never()).addItemToCart(any());
+        verify(cartService, never()).addItemToCart(any(), any());
+    }
+
+    @Test
+    void addItemsToCart_shouldAddAllItemsAtOnce() throws Exception {
+        // Arrange
+        List<CartItemDto> dtos = List.of(new CartItemDto(10L, 2), new CartItemDto(20L, 1));
+        String requestBody = objectMapper.writeValueAsString(new CartItemsDto(dtos));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/batch")
+                        .header(CartTokens.HEADER, TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Items added to cart"));
+
+        verify(cartService, times(1)).addItemsToCart(TOKEN, dtos);
+    }
+
+    @Test
+    void addItemsToCart_shouldReturnBadRequestForInvalidItem() throws Exception {
+        // Arrange - second entry has an invalid quantity
+        String requestBody = objectMapper.writeValueAsString(
+                new CartItemsDto(List.of(new CartItemDto(10L, 2), new CartItemDto(20L, 0))));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+
+        verify(cartService, never()).addItemsToCart(any(), any());
+    }
+
+    @Test
+    void addItemsToCart_shouldReturnBadRequestForEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(cartService, never()).addItemsToCart(any(), any());
+    }
+
+    @Test
+    void addItemsToCart_shouldReturnBadRequestForOversizedBatch() throws Exception {
+        // Arrange - one entry more than the limit
+        List<CartItemDto> dtos = new ArrayList<>();
+        for (long itemId = 1; itemId <= 101; itemId++) {
+            dtos.add(new CartItemDto(itemId, 1));
+        }
+        String requestBody = objectMapper.writeValueAsString(new CartItemsDto(dtos));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+
+        verify(cartService, never()).addItemsToCart(any(), any());
     }
 
     @Test
     void clearCart_shouldRemoveAllItems() throws Exception {
         // Act & Assert
-        mockMvc.perform(delete("/api/cart"))
+        mockMvc.perform(delete("/api/cart").header(CartTokens.HEADER, TOKEN))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Cart cleared"));
 
-        verify(cartService, times(1)).clearCart();
+        verify(cartService, times(1)).clearCart(TOKEN);
     }
 
     @Test
@@ -109,11 +198,11 @@ class CartControllerTest {
         Long cartItemId = 5L;
 
         // Act & Assert
-        mockMvc.perform(delete("/api/cart/{cartItemId}", cartItemId))
+        mockMvc.perform(delete("/api/cart/{cartItemId}", cartItemId).header(CartTokens.HEADER, TOKEN))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Item removed from cart"));
 
-        verify(cartService, times(1)).removeItemFromCart(cartItemId);
+        verify(cartService, times(1)).removeItemFromCart(TOKEN, cartItemId);
     }
 
     @Test
@@ -122,6 +211,6 @@ class CartControllerTest {
         mockMvc.perform(delete("/api/cart/invalid"))
                 .andExpect(status().isBadRequest());
 
-        verify(cartService, never()).removeItemFromCart(anyLong());
+        verify(cartService, never()).removeItemFromCart(anyString(), anyLong());
     }
 }
\ No newline at end of file
@@ -1,8 +1,19 @@
 package com.beytullahpaytar.ecommerce.controller;
 
+import com.beytullahpaytar.ecommerce.dto.CacheStatsDto;
 import com.beytullahpaytar.ecommerce.dto.ItemDto;
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemPageDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSearchHitDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSuggestionDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+import com.beytullahpaytar.ecommerce.dto.UpdateStockDto;
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.services.InventoryService;
+import com.beytullahpaytar.ecommerce.services.ItemExportService;
 import com.beytullahpaytar.ecommerce.services.ItemService;
+import com.beytullahpaytar.ecommerce.services.TypeaheadService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +23,12 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,6 +45,15 @@ class ItemControllerTest {
     @Mock
     private ItemService itemService;
 
+    @Mock
+    private ItemExportService itemExportService;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private TypeaheadService typeaheadService;
+
     @InjectMocks
     private ItemController itemController;
 
@@ -44,7 +68,7 @@ class ItemControllerTest {
     @Test
     void getItem_shouldReturnItemWhenExists() throws Exception {
         // Arrange
-        Item mockItem = new Item(1L, "Test Item", "Description", 99.99, "image.jpg");
+        Item mockItem = new Item(1L, "Test Item", "Description", Money.valueOf("99.99"), "image.jpg");
         when(itemService.getItem(1L)).thenReturn(mockItem);
 
         // Act & Assert
@@ -67,19 +91,86 @@ class ItemControllerTest {
     @Test
     void getAllItems_shouldReturnListOfItems() throws Exception {
         // Arrange
-        List<Item> items = Arrays.asList(new Item(1L, "Item 1", "Desc 1", 10.0, "img1.jpg"), new Item(2L, "Item 2", "Desc 2", 20.0, "img2.jpg"));
+        List<Item> items = Arrays.asList(new Item(1L, "Item 1", "Desc 1", Money.valueOf("10.00"), "img1.jpg"), new Item(2L, "Item 2", "Desc 2", Money.valueOf("20.00"), "img2.jpg"));
         when(itemService.getAllItems()).thenReturn(items);
 
         // Act & Assert
-        mockMvc.perform(get("/api/admin/items")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(2)).andExpect(jsonPath("$[0].name").value("Item 1")).andExpect(jsonPath("$[1].name").value("Item 2"));
+        mockMvc.perform(get("/api/admin/items").param("unpaged", "true")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(2)).andExpect(jsonPath("$[0].name").value("Item 1")).andExpect(jsonPath("$[1].name").value("Item 2"));
 
         verify(itemService, times(1)).getAllItems();
     }
 
+    @Test
+    void getItems_shouldReturnPageWithCursor() throws Exception {
+        // Arrange
+        List<Item> items = List.of(new Item(1L, "Item 1", "Desc 1", Money.valueOf("10.00"), "img1.jpg"));
+        when(itemService.getItemPage("abc", 1, "price")).thenReturn(new ItemPageDto<>(items, "def"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/admin/items").param("cursor", "abc").param("size", "1").param("sort", "price")).andExpect(status().isOk()).andExpect(jsonPath("$.items.length()").value(1)).andExpect(jsonPath("$.nextCursor").value("def"));
+
+        verify(itemService, never()).getAllItems();
+    }
+
+    @Test
+    void getCatalog_shouldReturnSummariesWithoutDescriptions() throws Exception {
+        // Arrange
+        List<ItemSummaryDto> items = List.of(new ItemSummaryDto(1L, "Item 1", Money.valueOf("10.00"), "img1.jpg"));
+        when(itemService.getCatalogPage(new ItemFilter(Money.valueOf("5.00"), Money.valueOf("20.00")), null, null, "price", "desc"))
+                .thenReturn(new ItemPageDto<>(items, null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/admin/items/catalog").param("minPrice", "5").param("maxPrice", "20").param("sort", "price").param("direction", "desc")).andExpect(status().isOk()).andExpect(jsonPath("$.items[0].name").value("Item 1")).andExpect(jsonPath("$.items[0].description").doesNotExist());
+    }
+
+    @Test
+    void searchItems_shouldReturnRankedHits() throws Exception {
+        // Arrange
+        Item item = new Item(1L, "Leather Boots", "Brown", Money.valueOf("80.00"), "boots.jpg");
+        when(itemService.searchItems("boot", 5)).thenReturn(List.of(new ItemSearchHitDto(item, 2.5)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/admin/items/search").param("q", "boot").param("limit", "5")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1)).andExpect(jsonPath("$[0].item.name").value("Leather Boots")).andExpect(jsonPath("$[0].score").value(2.5));
+    }
+
+    @Test
+    void suggestItems_shouldReturnSuggestions() throws Exception {
+        // Arrange
+        when(typeaheadService.suggest("leat")).thenReturn(List.of(new ItemSuggestionDto(1L, "Leather Boots")));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/admin/items/suggest").param("q", "leat")).andExpect(status().isOk()).andExpect(jsonPath("$[0].id").value(1)).andExpect(jsonPath("$[0].name").value("Leather Boots"));
+    }
+
+    @Test
+    void exportItems_shouldStreamExportBody() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("[]".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(itemExportService).exportItems(any(OutputStream.class));
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/api/admin/items/export")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(content().string("[]"));
+
+        verify(itemExportService, times(1)).exportItems(any(OutputStream.class));
+    }
+
+    @Test
+    void getItemCacheStats_shouldReturnCounters() throws Exception {
+        // Arrange
+        when(itemService.getItemCacheStats()).thenReturn(new CacheStatsDto(8, 2, 1, 0.8, 5));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/admin/items/cache-stats")).andExpect(status().isOk()).andExpect(jsonPath("$.hitCount").value(8)).andExpect(jsonPath("$.missCount").value(2)).andExpect(jsonPath("$.evictionCount").value(1));
+    }
+
     @Test
     void addItem_shouldCreateNewItem() throws Exception {
         // Arrange
-        ItemDto dto = new ItemDto("New Item", "New Description", 50.0, "tempFileimage.jpg");
+        ItemDto dto = new ItemDto("New Item", "New Description", new BigDecimal("50.0"), "tempFileimage.jpg");
         String requestBody = objectMapper.writeValueAsString(dto);
 
         when(itemService.addItem(any(ItemDto.class))).thenReturn(ResponseEntity.ok("Item added successfully"));
@@ -93,7 +184,7 @@ class ItemControllerTest {
     @Test
     void addItem_shouldReturnBadRequestWhenInvalidInput() throws Exception {
         // Arrange - missing required fields
-        ItemDto invalidDto = new ItemDto("", "", -10.0, "");
+        ItemDto invalidDto = new ItemDto("", "", new BigDecimal("-10.0"), "");
         String requestBody = objectMapper.writeValueAsString(invalidDto);
 
         // Act & Assert
@@ -105,7 +196,7 @@ class ItemControllerTest {
     @Test
     void updateItem_shouldUpdateExistingItem() throws Exception {
         // Arrange
-        ItemDto dto = new ItemDto("Updated Item", "Updated Desc", 60.0, "tempFileupdated.jpg");
+        ItemDto dto = new ItemDto("Updated Item", "Updated Desc", new BigDecimal("60.0"), "tempFileupdated.jpg");
         String requestBody = objectMapper.writeValueAsString(dto);
 
         when(itemService.updateItem(eq(1L), any(ItemDto.class))).thenReturn(ResponseEntity.ok("Item updated successfully"));
@@ -119,7 +210,7 @@ class ItemControllerTest {
     @Test
     void updateItem_shouldReturnNotFoundForNonExistingItem() throws Exception {
         // Arrange
-        ItemDto dto = new ItemDto("Item", "Desc", 10.0, "tempFileimage.jpg");
+        ItemDto dto = new ItemDto("Item", "Desc", new BigDecimal("10.0"), "tempFileimage.jpg");
         String requestBody = objectMapper.writeValueAsString(dto);
 
         when(itemService.updateItem(eq(999L), any(ItemDto.class))).thenReturn(ResponseEntity.status(404).body("Item not found"));
@@ -133,7 +224,7 @@ class ItemControllerTest {
     @Test
     void updateItem_shouldReturnBadRequestWhenInvalidInput() throws Exception {
         // Arrange - invalid data
-        ItemDto invalidDto = new ItemDto("", "", -5.0, "");
+        ItemDto invalidDto = new ItemDto("", "", new BigDecimal("-5.0"), "");
         String requestBody = objectMapper.writeValueAsString(invalidDto);
 
         // Act & Assert
@@ -141,4 +232,22 @@ class ItemControllerTest {
 
         verify(itemService, never()).updateItem(anyLong(), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateStock_shouldSetStock() throws Exception {
+        mockMvc.perform(put("/api/admin/items/1/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateStockDto(25))))
+                .andExpect(status().isOk()).andExpect(content().string("Stock updated successfully"));
+
+        verify(inventoryService).setStock(1L, 25);
+    }
+
+    @Test
+    void updateStock_shouldRejectNegativeStock() throws Exception {
+        mockMvc.perform(put("/api/admin/items/1/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateStockDto(-1))))
+                .andExpect(status().isBadRequest());
+
+        verify(inventoryService, never()).setStock(anyLong(), any());
+    }
+}
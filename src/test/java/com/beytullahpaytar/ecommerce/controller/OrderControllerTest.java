@@ -1,24 +1,39 @@
 package com.beytullahpaytar.ecommerce.controller;
 
+import com.beytullahpaytar.ecommerce.config.GlobalExceptionHandler;
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusDto;
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusResultDto;
 import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderPageDto;
+import com.beytullahpaytar.ecommerce.dto.OrderSummaryDto;
 import com.beytullahpaytar.ecommerce.dto.UpdateOrderStatusDto;
 import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import com.beytullahpaytar.ecommerce.services.IdempotencyService;
+import com.beytullahpaytar.ecommerce.services.OrderNotFoundException;
 import com.beytullahpaytar.ecommerce.services.OrderService;
+import com.beytullahpaytar.ecommerce.services.OrderStatusConflictException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +45,9 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Spy
+    private IdempotencyService idempotencyService = new IdempotencyService(new OrderProperties());
+
     @InjectMocks
     private OrderController orderController;
 
@@ -38,7 +56,9 @@ class OrderControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(orderController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
     }
 
     @Test
@@ -49,12 +69,36 @@ class OrderControllerTest {
 
         // Act & Assert
         mockMvc.perform(post("/api/order")
+                        .header(CartTokens.HEADER, "test-cart-token")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Order created successfully"));
 
-        verify(orderService, times(1)).createOrder(any(OrderDto.class));
+        verify(orderService, times(1)).createOrder(eq("test-cart-token"), any(OrderDto.class));
+    }
+
+    @Test
+    void createOrder_shouldCreateOrderOnlyOnceForRepeatedIdempotencyKey() throws Exception {
+        // Arrange
+        OrderDto dto = new OrderDto("John", "Doe", "john@example.com", "123456789", "123 Main St");
+        String requestBody = objectMapper.writeValueAsString(dto);
+        Order order = new Order();
+        order.setId(1L);
+        when(orderService.createOrder(eq("test-cart-token"), any(OrderDto.class))).thenReturn(order);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/order")
+                            .header(CartTokens.HEADER, "test-cart-token")
+                            .header("Idempotency-Key", "retry-key")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string("Order created successfully"));
+        }
+
+        verify(orderService, times(1)).createOrder(eq("test-cart-token"), any(OrderDto.class));
     }
 
     @Test
@@ -69,7 +113,7 @@ class OrderControllerTest {
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
 
-        verify(orderService, never()).createOrder(any());
+        verify(orderService, never()).createOrder(any(), any());
     }
 
     @Test
@@ -87,7 +131,7 @@ class OrderControllerTest {
         when(orderService.getAllOrders()).thenReturn(orders);
 
         // Act & Assert
-        mockMvc.perform(get("/api/order"))
+        mockMvc.perform(get("/api/order").param("unpaged", "true"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].id").value(1L))
@@ -96,6 +140,54 @@ class OrderControllerTest {
         verify(orderService, times(1)).getAllOrders();
     }
 
+    @Test
+    void getOrders_shouldReturnFilteredPageOfSummaries() throws Exception {
+        // Arrange
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        OrderSummaryDto summary = new OrderSummaryDto(7L, "John", "Doe", "john@example.com", OrderStatus.PENDING, 150.0, from);
+        OrderFilter filter = new OrderFilter(OrderStatus.PENDING, from, null);
+        doReturn(new OrderPageDto<>(List.of(summary), 7L))
+                .when(orderService).getOrderPage(filter, 3L, 0, 1, false);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/order")
+                        .param("orderStatus", "pending")
+                        .param("createdFrom", "2025-01-01T00:00:00Z")
+                        .param("afterId", "3")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()").value(1))
+                .andExpect(jsonPath("$.orders[0].id").value(7L))
+                .andExpect(jsonPath("$.orders[0].cart").doesNotExist())
+                .andExpect(jsonPath("$.nextAfterId").value(7L));
+
+        verify(orderService).getOrderPage(eq(filter), eq(3L), eq(0), eq(1), eq(false));
+        verify(orderService, never()).getAllOrders();
+    }
+
+    @Test
+    void getOrders_shouldReturnBadRequestForUnknownStatus() throws Exception {
+        mockMvc.perform(get("/api/order").param("orderStatus", "lost"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Unknown order status: lost"));
+
+        verify(orderService, never()).getOrderPage(any(), any(), anyInt(), any(), anyBoolean());
+    }
+
+    @Test
+    void getOrders_withoutParams_shouldUseDefaults() throws Exception {
+        // Arrange
+        doReturn(new OrderPageDto<>(List.of(), null))
+                .when(orderService).getOrderPage(any(), isNull(), eq(0), isNull(), eq(false));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/order"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders.length()").value(0));
+
+        verify(orderService).getOrderPage(eq(new OrderFilter(null, null, null)), isNull(), eq(0), isNull(), eq(false));
+    }
+
     @Test
     void getOrderById_shouldReturnOrderWhenExists() throws Exception {
         // Arrange
@@ -128,7 +220,7 @@ class OrderControllerTest {
     @Test
     void updateOrderStatus_shouldUpdateSuccessfully() throws Exception {
         // Arrange
-        UpdateOrderStatusDto dto = new UpdateOrderStatusDto("SHIPPED");
+        UpdateOrderStatusDto dto = new UpdateOrderStatusDto(OrderStatus.SHIPPED, null);
         String requestBody = objectMapper.writeValueAsString(dto);
 
         // Act & Assert
@@ -138,7 +230,7 @@ class OrderControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Order status updated successfully"));
 
-        verify(orderService, times(1)).updateOrderStatus(eq(1L), eq("SHIPPED"));
+        verify(orderService, times(1)).updateOrderStatus(eq(1L), eq(OrderStatus.SHIPPED), isNull());
     }
 
     @Test
@@ -152,6 +244,68 @@ class OrderControllerTest {
                         .content(invalidRequestBody))
                 .andExpect(status().isBadRequest());
 
-        verify(orderService, never()).updateOrderStatus(anyLong(), any());
+        verify(orderService, never()).updateOrderStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void updateOrderStatus_shouldReturnBadRequestForUnknownStatus() throws Exception {
+        mockMvc.perform(put("/api/order/1/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderStatus\":\"LOST\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderService, never()).updateOrderStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void updateOrderStatus_shouldReturnConflictForIllegalTransition() throws Exception {
+        // Arrange
+        doThrow(new OrderStatusConflictException("Order 1 cannot move from DELIVERED to PENDING"))
+                .when(orderService).updateOrderStatus(1L, OrderStatus.PENDING, null);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/order/1/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderStatus\":\"pending\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Order 1 cannot move from DELIVERED to PENDING"));
+    }
+
+    @Test
+    void updateOrderStatus_shouldReturnNotFoundForMissingOrder() throws Exception {
+        // Arrange
+        doThrow(new OrderNotFoundException(9L)).when(orderService).updateOrderStatus(9L, OrderStatus.SHIPPED, null);
+
+        // Act & Assert
+        mockMvc.perform(put("/api/order/9/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderStatus\":\"SHIPPED\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void updateOrderStatuses_shouldReturnUpdatedAndSkippedIds() throws Exception {
+        // Arrange
+        BulkOrderStatusDto dto = new BulkOrderStatusDto(List.of(1L, 2L), OrderStatus.SHIPPED, OrderStatus.PROCESSING);
+        when(orderService.updateOrderStatuses(List.of(1L, 2L), OrderStatus.SHIPPED, OrderStatus.PROCESSING))
+                .thenReturn(new BulkOrderStatusResultDto(List.of(1L), List.of(2L)));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/order/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated[0]").value(1L))
+                .andExpect(jsonPath("$.skipped[0]").value(2L));
+    }
+
+    @Test
+    void updateOrderStatuses_shouldReturnBadRequestForEmptyBatch() throws Exception {
+        mockMvc.perform(put("/api/order/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orderIds\":[],\"orderStatus\":\"SHIPPED\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderService, never()).updateOrderStatuses(any(), any(), any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.dto.UploadStatusDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedUploadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ChunkedUploadService chunkedUploadService;
+
+    private final byte[] content = new byte[250];
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.resolve("upload-dir").toString());
+        properties.setChunkedUploadLocation(tempDir.resolve("upload-parts").toString());
+        properties.setChunkSize(100);
+        Files.createDirectories(tempDir.resolve("upload-dir"));
+        chunkedUploadService = new ChunkedUploadService(new FileSystemStorageService(properties), properties);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    @Test
+    void chunksInAnyOrder_shouldAssembleTheFile() throws Exception {
+        String uploadId = chunkedUploadService.initUpload("photo.jpg", content.length).uploadId();
+
+        send(uploadId, 2);
+        send(uploadId, 0);
+        send(uploadId, 1);
+        String filename = chunkedUploadService.completeUpload(uploadId);
+
+        assertTrue(filename.startsWith("tempFile"));
+        assertTrue(filename.endsWith(".jpg"));
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("upload-dir").resolve(filename)));
+        assertThrows(StorageFileNotFoundException.class, () -> chunkedUploadService.status(uploadId));
+    }
+
+    @Test
+    void status_shouldListReceivedChunksForResuming() throws Exception {
+        UploadStatusDto started = chunkedUploadService.initUpload("photo.jpg", content.length);
+        assertEquals(3, started.totalChunks());
+
+        send(started.uploadId(), 1);
+
+        assertEquals(List.of(1), chunkedUploadService.status(started.uploadId()).receivedChunks());
+        assertThrows(InvalidUploadException.class, () -> chunkedUploadService.completeUpload(started.uploadId()));
+    }
+
+    @Test
+    void writeChunk_shouldRejectChecksumMismatch() {
+        String uploadId = chunkedUploadService.initUpload("photo.jpg", content.length).uploadId();
+
+        assertThrows(InvalidUploadException.class, () -> chunkedUploadService.writeChunk(uploadId, 0,
+                new ByteArrayInputStream(Arrays.copyOfRange(content, 0, 100)), "00"));
+
+        assertTrue(chunkedUploadService.status(uploadId).receivedChunks().isEmpty());
+    }
+
+    @Test
+    void writeChunk_shouldRejectWrongLength() throws Exception {
+        String uploadId = chunkedUploadService.initUpload("photo.jpg", content.length).uploadId();
+        byte[] shortChunk = Arrays.copyOfRange(content, 0, 60);
+
+        assertThrows(InvalidUploadException.class, () -> chunkedUploadService.writeChunk(uploadId, 0,
+                new ByteArrayInputStream(shortChunk), sha256(shortChunk)));
+    }
+
+    @Test
+    void badResendOfAnAcceptedChunk_shouldDropTheChunk() throws Exception {
+        String uploadId = chunkedUploadService.initUpload("photo.jpg", content.length).uploadId();
+        send(uploadId, 0);
+        send(uploadId, 1);
+        send(uploadId, 2);
+
+        byte[] corrupt = new byte[100];
+        assertThrows(InvalidUploadException.class, () -> chunkedUploadService.writeChunk(uploadId, 1,
+                new ByteArrayInputStream(corrupt), sha256(Arrays.copyOfRange(content, 100, 200))));
+
+        assertEquals(List.of(0, 2), chunkedUploadService.status(uploadId).receivedChunks());
+        assertThrows(InvalidUploadException.class, () -> chunkedUploadService.completeUpload(uploadId));
+
+        send(uploadId, 1);
+        String filename = chunkedUploadService.completeUpload(uploadId);
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("upload-dir").resolve(filename)));
+    }
+
+    @Test
+    void unknownOrMalformedUploadId_shouldNotBeFound() {
+        assertThrows(StorageFileNotFoundException.class, () -> chunkedUploadService.status("../upload-dir"));
+        assertThrows(StorageFileNotFoundException.class,
+                () -> chunkedUploadService.status("0123456789abcdef0123456789abcdef"));
+    }
+
+    private void send(String uploadId, int index) throws Exception {
+        byte[] chunk = Arrays.copyOfRange(content, index * 100, Math.min(content.length, (index + 1) * 100));
+        chunkedUploadService.writeChunk(uploadId, index, new ByteArrayInputStream(chunk), sha256(chunk));
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,112 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.repository.ImageBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContentAddressedImageStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ImageBlobRepository imageBlobRepository;
+
+    private ContentAddressedImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.setContentAddressed(true);
+        imageStore = new ContentAddressedImageStore(properties, imageBlobRepository);
+    }
+
+    @Test
+    void reference_shouldStoreIdenticalUploadsOnceUnderTheirHash() throws Exception {
+        Files.writeString(tempDir.resolve("tempFileone.jpg"), "same photo");
+        Files.writeString(tempDir.resolve("tempFiletwo.jpg"), "same photo");
+
+        String first = promote("tempFileone.jpg");
+        String second = promote("tempFiletwo.jpg");
+
+        assertEquals(first, second);
+        assertTrue(imageStore.isContentAddressed(first));
+        assertEquals(first.substring(0, 2), first.substring(6, 8));
+        assertEquals("same photo", Files.readString(tempDir.resolve(first)));
+        assertFalse(Files.exists(tempDir.resolve("tempFileone.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("tempFiletwo.jpg")));
+        verify(imageBlobRepository, times(2)).acquire(first);
+    }
+
+    @Test
+    void reference_shouldTrustTheHashInTheTempName() throws Exception {
+        String hash = "ab".repeat(32);
+        Files.writeString(tempDir.resolve("tempFile" + hash + "-1234.png"), "photo");
+
+        assertEquals("ab/ab/" + hash + ".png", promote("tempFile" + hash + "-1234.png"));
+    }
+
+    @Test
+    void reference_shouldRejectAHashedTempNameWithoutItsFile() throws Exception {
+        String hash = "ab".repeat(32);
+        Files.writeString(tempDir.resolve("tempFile" + hash + "-1234.png"), "photo");
+        promote("tempFile" + hash + "-1234.png");
+
+        // Used already, and one that never existed
+        assertThrows(InvalidUploadException.class, () -> imageStore.reference("tempFile" + hash + "-1234.png"));
+        assertThrows(InvalidUploadException.class, () -> imageStore.reference("tempFile" + "cd".repeat(32) + "-5678.png"));
+        verify(imageBlobRepository, times(1)).acquire(anyString());
+    }
+
+    @Test
+    void reference_shouldShareAStoredImageByItsKey() throws Exception {
+        Files.writeString(tempDir.resolve("tempFileone.jpg"), "photo");
+        String key = promote("tempFileone.jpg");
+
+        assertEquals(key, promote(key));
+        assertThrows(InvalidUploadException.class, () -> imageStore.reference("00/00/" + "0".repeat(64) + ".jpg"));
+        verify(imageBlobRepository, times(2)).acquire(key);
+    }
+
+    @Test
+    void release_shouldKeepTheFileWhileReferencesRemain() throws Exception {
+        Files.writeString(tempDir.resolve("tempFileone.jpg"), "photo");
+        String key = promote("tempFileone.jpg");
+        when(imageBlobRepository.release(key)).thenReturn(List.of(1));
+
+        imageStore.release(key);
+
+        assertTrue(Files.exists(tempDir.resolve(key)));
+        verify(imageBlobRepository, never()).deleteUnused(any());
+    }
+
+    @Test
+    void release_shouldDeleteTheFileWithTheLastReference() throws Exception {
+        Files.writeString(tempDir.resolve("tempFileone.jpg"), "photo");
+        String key = promote("tempFileone.jpg");
+        when(imageBlobRepository.release(key)).thenReturn(List.of(0));
+
+        imageStore.release(key);
+
+        assertFalse(Files.exists(tempDir.resolve(key)));
+        verify(imageBlobRepository).deleteUnused(key);
+    }
+
+    private String promote(String uploadName) {
+        String key = imageStore.reference(uploadName);
+        imageStore.storeFile(uploadName, key);
+        return key;
+    }
+}
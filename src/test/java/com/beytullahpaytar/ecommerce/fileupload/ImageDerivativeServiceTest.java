@@ -0,0 +1,79 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageDerivativeService imageDerivativeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.resolve("upload-dir").toString());
+        properties.setDerivativeLocation(tempDir.resolve("derivatives").toString());
+        Files.createDirectories(tempDir.resolve("upload-dir"));
+        imageDerivativeService = new ImageDerivativeService(properties);
+    }
+
+    @Test
+    void createDerivatives_shouldFitEveryVariantIntoItsBox() throws Exception {
+        ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "jpg",
+                tempDir.resolve("upload-dir").resolve("photo.jpg").toFile());
+
+        imageDerivativeService.createDerivatives("photo.jpg");
+
+        BufferedImage thumbnail = ImageIO.read(imageDerivativeService.find("photo.jpg", ImageVariant.THUMBNAIL)
+                .orElseThrow().toFile());
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(100, thumbnail.getHeight());
+        BufferedImage compressed = ImageIO.read(imageDerivativeService.find("photo.jpg", ImageVariant.COMPRESSED)
+                .orElseThrow().toFile());
+        assertEquals(1600, compressed.getWidth());
+    }
+
+    @Test
+    void createDerivatives_shouldKeepTransparencyAndNeverUpscale() throws Exception {
+        ImageIO.write(new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB), "png",
+                tempDir.resolve("upload-dir").resolve("logo.png").toFile());
+
+        imageDerivativeService.createDerivatives("logo.png");
+
+        Path medium = imageDerivativeService.find("logo.png", ImageVariant.MEDIUM).orElseThrow();
+        assertTrue(medium.toString().endsWith(".png"));
+        assertEquals(100, ImageIO.read(medium.toFile()).getWidth());
+    }
+
+    @Test
+    void delete_shouldRemoveAllDerivatives() throws Exception {
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "jpg",
+                tempDir.resolve("upload-dir").resolve("photo.jpg").toFile());
+        imageDerivativeService.createDerivatives("photo.jpg");
+
+        imageDerivativeService.delete("photo.jpg");
+
+        for (ImageVariant variant : ImageVariant.values()) {
+            assertTrue(imageDerivativeService.find("photo.jpg", variant).isEmpty());
+        }
+    }
+
+    @Test
+    void createDerivatives_shouldSkipFilesThatAreNotImages() throws Exception {
+        Files.writeString(tempDir.resolve("upload-dir").resolve("notes.jpg"), "not an image");
+
+        imageDerivativeService.createDerivatives("notes.jpg");
+
+        assertTrue(imageDerivativeService.find("notes.jpg", ImageVariant.THUMBNAIL).isEmpty());
+    }
+}
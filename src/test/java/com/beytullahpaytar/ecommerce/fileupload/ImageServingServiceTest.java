@@ -0,0 +1,130 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageServingServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImageServingService imageServingService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.setDerivativeLocation(tempDir.resolve("derivatives").toString());
+        imageServingService = new ImageServingService(properties, new FileSystemStorageService(properties),
+                new ImageDerivativeService(properties));
+        Files.writeString(tempDir.resolve("photo.png"), "0123456789", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void serve_shouldSendWholeFileWithValidatorsAndImmutableCaching() throws Exception {
+        MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/upload-dir/photo.png"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("image/png", response.getContentType());
+        assertNotNull(response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void serve_shouldAnswerNotModifiedForMatchingETag() throws Exception {
+        String etag = get(new MockHttpServletRequest("GET", "/upload-dir/photo.png")).getHeader("ETag");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/upload-dir/photo.png");
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void serve_shouldSendRequestedRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/upload-dir/photo.png");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void serve_shouldRejectUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/upload-dir/photo.png");
+        request.addHeader("Range", "bytes=20-30");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void serve_shouldHandRangeToSendfileWhenSupported() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/upload-dir/photo.png");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=4-");
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(4L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void serve_variant_shouldFallBackToTheOriginalUntilTheDerivativeExists() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageServingService.serve("photo.png", ImageVariant.THUMBNAIL,
+                new MockHttpServletRequest("GET", "/upload-dir/photo.png"), response);
+
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("no-cache", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void serve_variant_shouldSendTheDerivativeOnceItExists() throws Exception {
+        Path thumbnail = tempDir.resolve("derivatives").resolve("thumbnail").resolve("photo.png.jpg");
+        Files.createDirectories(thumbnail.getParent());
+        Files.writeString(thumbnail, "small", StandardCharsets.UTF_8);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageServingService.serve("photo.png", ImageVariant.THUMBNAIL,
+                new MockHttpServletRequest("GET", "/upload-dir/photo.png"), response);
+
+        assertEquals("small", response.getContentAsString());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void serve_shouldNotLeaveTheStorageLocation() {
+        assertThrows(StorageFileNotFoundException.class,
+                () -> get(new MockHttpServletRequest("GET", "/upload-dir/../secret.txt"), "../secret.txt"));
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+        return get(request, "photo.png");
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request, String filename) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        imageServingService.serve(filename, null, request, response);
+        return response;
+    }
+}
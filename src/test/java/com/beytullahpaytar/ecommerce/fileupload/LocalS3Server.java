@@ -0,0 +1,183 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for an S3 compatible store with a single path-style bucket, enough for
+ * S3StorageService: plain and multipart uploads, copies, reads, deletes and listings. Signatures are
+ * not checked. Records how many part uploads were in flight at once.
+ */
+public class LocalS3Server implements AutoCloseable {
+
+    private final String bucket;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, SortedMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger partsInFlight = new AtomicInteger();
+    private final AtomicInteger maxPartsInFlight = new AtomicInteger();
+
+    public LocalS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public Map<String, byte[]> getObjects() {
+        return objects;
+    }
+
+    public Set<String> getPendingUploads() {
+        return uploads.keySet();
+    }
+
+    public int getMaxPartsInFlight() {
+        return maxPartsInFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String prefix = "/" + bucket;
+            if (!path.startsWith(prefix)) {
+                respond(exchange, 404, "");
+                return;
+            }
+            String key = URLDecoder.decode(path.substring(prefix.length()).replaceFirst("^/", ""), StandardCharsets.UTF_8);
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            byte[] body = exchange.getRequestBody().readAllBytes();
+
+            switch (exchange.getRequestMethod()) {
+                case "HEAD" -> respond(exchange, key.isEmpty() || objects.containsKey(key) ? 200 : 404, "");
+                case "GET" -> {
+                    if (key.isEmpty()) {
+                        StringBuilder listing = new StringBuilder("<ListBucketResult>");
+                        objects.keySet().forEach(name -> listing.append("<Contents><Key>").append(name).append("</Key></Contents>"));
+                        respond(exchange, 200, listing.append("</ListBucketResult>").toString());
+                    } else if (objects.containsKey(key)) {
+                        respond(exchange, 200, objects.get(key));
+                    } else {
+                        respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                    }
+                }
+                case "PUT" -> {
+                    String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                    if (query.containsKey("uploadId")) {
+                        uploadPart(exchange, query, body);
+                    } else if (copySource != null) {
+                        String source = URLDecoder.decode(copySource.substring(prefix.length() + 1), StandardCharsets.UTF_8);
+                        byte[] content = objects.get(source);
+                        if (content == null) {
+                            respond(exchange, 404, "<Error><Code>NoSuchKey</Code></Error>");
+                            return;
+                        }
+                        objects.put(key, content);
+                        respond(exchange, 200, "<CopyObjectResult></CopyObjectResult>");
+                    } else {
+                        objects.put(key, body);
+                        respond(exchange, 200, "");
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        String uploadId = UUID.randomUUID().toString();
+                        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+                        respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + uploadId
+                                + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        SortedMap<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+                        int length = parts.values().stream().mapToInt(part -> part.length).sum();
+                        byte[] content = new byte[length];
+                        int position = 0;
+                        for (byte[] part : parts.values()) {
+                            System.arraycopy(part, 0, content, position, part.length);
+                            position += part.length;
+                        }
+                        objects.put(key, content);
+                        respond(exchange, 200, "<CompleteMultipartUploadResult></CompleteMultipartUploadResult>");
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> respond(exchange, 405, "");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, Map<String, String> query, byte[] body) throws IOException {
+        maxPartsInFlight.accumulateAndGet(partsInFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(50); // long enough for the next parts to arrive meanwhile
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            partsInFlight.decrementAndGet();
+        }
+        SortedMap<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+        if (parts == null) {
+            respond(exchange, 404, "<Error><Code>NoSuchUpload</Code></Error>");
+            return;
+        }
+        int partNumber = Integer.parseInt(query.get("partNumber"));
+        parts.put(partNumber, body);
+        exchange.getResponseHeaders().add("ETag", "\"part-" + partNumber + "\"");
+        respond(exchange, 200, "");
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+                        pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
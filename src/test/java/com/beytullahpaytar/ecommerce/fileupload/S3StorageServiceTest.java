@@ -0,0 +1,124 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3StorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalS3Server server;
+    private S3StorageService storageService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalS3Server("images");
+        StorageProperties properties = new StorageProperties();
+        properties.setBackend(StorageProperties.Backend.S3);
+        properties.getS3().setEndpoint(server.getEndpoint());
+        properties.getS3().setBucket("images");
+        properties.getS3().setAccessKey("test");
+        properties.getS3().setSecretKey("secret");
+        properties.getS3().setPartSize(1000);
+        properties.getS3().setUploadConcurrency(3);
+        storageService = new S3StorageService(properties);
+        storageService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageService.shutdown();
+        server.close();
+    }
+
+    @Test
+    void store_smallFile_shouldPutOneObject() throws Exception {
+        String filename = storageService.store(new MockMultipartFile("file", "photo.jpg", "image/jpeg", bytes(10)));
+
+        assertTrue(filename.startsWith("tempFile"));
+        assertTrue(filename.endsWith(".jpg"));
+        assertArrayEquals(bytes(10), server.getObjects().get(filename));
+        assertArrayEquals(bytes(10), read(storageService.loadAsResource(filename)));
+    }
+
+    @Test
+    void store_largeFile_shouldUploadPartsInParallel() {
+        byte[] content = bytes(4500); // five parts, the last one short
+
+        String filename = storageService.store(new MockMultipartFile("file", "photo.jpg", "image/jpeg", content));
+
+        assertArrayEquals(content, server.getObjects().get(filename));
+        assertTrue(server.getMaxPartsInFlight() > 1);
+        assertTrue(server.getMaxPartsInFlight() <= 3);
+        assertTrue(server.getPendingUploads().isEmpty());
+    }
+
+    @Test
+    void storeLocalFile_shouldUploadAndRemoveIt() throws Exception {
+        Path source = Files.write(tempDir.resolve("data.part"), bytes(2500));
+
+        storageService.store(source, "tempFileabc.png");
+
+        assertArrayEquals(bytes(2500), server.getObjects().get("tempFileabc.png"));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void move_shouldCopyAndDeleteTheSource() {
+        server.getObjects().put("tempFilesample.jpg", bytes(5));
+
+        storageService.move("tempFilesample.jpg", "sample.jpg");
+
+        assertArrayEquals(bytes(5), server.getObjects().get("sample.jpg"));
+        assertFalse(server.getObjects().containsKey("tempFilesample.jpg"));
+    }
+
+    @Test
+    void move_missingSource_shouldFail() {
+        assertThrows(StorageException.class, () -> storageService.move("tempFilemissing.jpg", "missing.jpg"));
+    }
+
+    @Test
+    void loadAllAndDelete_shouldWorkOnTheBucket() {
+        server.getObjects().put("a.jpg", bytes(1));
+        server.getObjects().put("b c.jpg", bytes(1));
+
+        assertEquals(List.of("a.jpg", "b c.jpg"), storageService.loadAll().map(Path::toString).toList());
+
+        storageService.delete("b c.jpg");
+        storageService.delete("not-there.jpg");
+
+        assertEquals(List.of("a.jpg"), List.copyOf(server.getObjects().keySet()));
+    }
+
+    @Test
+    void loadAsResource_missingObject_shouldThrowNotFound() {
+        assertThrows(StorageFileNotFoundException.class, () -> storageService.loadAsResource("missing.jpg"));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static byte[] read(Resource resource) throws Exception {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
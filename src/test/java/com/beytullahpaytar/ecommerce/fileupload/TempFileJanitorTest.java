@@ -0,0 +1,74 @@
+package com.beytullahpaytar.ecommerce.fileupload;
+
+import com.beytullahpaytar.ecommerce.dto.TempFileJanitorStatsDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TempFileJanitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StorageProperties properties;
+
+    private TempFileJanitor janitor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.setTempFileMaxAge(Duration.ofHours(1));
+        janitor = new TempFileJanitor(properties);
+    }
+
+    @Test
+    void sweep_shouldOnlyDeleteExpiredTempFiles() throws Exception {
+        Path expired = file("tempFileold.jpg", "12345", Duration.ofHours(2));
+        Path fresh = file("tempFilenew.jpg", "12345", Duration.ZERO);
+        Path image = file("old.jpg", "12345", Duration.ofHours(2));
+
+        janitor.sweep();
+
+        assertFalse(Files.exists(expired));
+        assertTrue(Files.exists(fresh));
+        assertTrue(Files.exists(image));
+        TempFileJanitorStatsDto stats = janitor.getStats();
+        assertEquals(1, stats.filesDeleted());
+        assertEquals(5, stats.bytesReclaimed());
+        assertEquals(1, stats.sweepsCompleted());
+    }
+
+    @Test
+    void sweep_shouldSpreadASweepOverTicksWithinTheBudget() throws Exception {
+        properties.setTempFileSweepBudget(2);
+        for (int i = 0; i < 5; i++) {
+            file("tempFile" + i + ".jpg", "x", Duration.ofHours(2));
+        }
+
+        janitor.sweep();
+        assertEquals(2, janitor.getStats().filesDeleted());
+        assertEquals(0, janitor.getStats().sweepsCompleted());
+
+        janitor.sweep();
+        janitor.sweep();
+        assertEquals(5, janitor.getStats().filesDeleted());
+
+        janitor.sweep();
+        assertEquals(1, janitor.getStats().sweepsCompleted());
+    }
+
+    private Path file(String name, String content, Duration age) throws Exception {
+        Path file = Files.writeString(tempDir.resolve(name), content);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+}
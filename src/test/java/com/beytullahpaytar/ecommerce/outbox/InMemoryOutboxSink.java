@@ -0,0 +1,32 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Collects relayed events so tests can assert on them, optionally failing on a given event id
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+    private volatile Long failOnId;
+
+    @Override
+    public void publish(OutboxEvent event) {
+        if (event.getId().equals(failOnId)) {
+            throw new IllegalStateException("Sink unavailable");
+        }
+        events.add(event);
+    }
+
+    public List<OutboxEvent> getEvents() {
+        return events;
+    }
+
+    public void failOn(Long id) {
+        this.failOnId = id;
+    }
+
+    public void clear() {
+        events.clear();
+        failOnId = null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.beytullahpaytar.ecommerce.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final InMemoryOutboxSink sink = new InMemoryOutboxSink();
+    private final OutboxProperties outboxProperties = new OutboxProperties();
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxProperties.setBatchSize(2);
+        outboxRelay = new OutboxRelay(outboxRepository, List.of(sink), outboxProperties, transactionManager);
+    }
+
+    @Test
+    void relay_shouldDrainFullBatchesUntilAShortOne() {
+        // Arrange
+        OutboxEvent e1 = event(1L), e2 = event(2L), e3 = event(3L);
+        when(outboxRepository.findClaimable(any(), eq(2))).thenReturn(List.of(e1, e2), List.of(e3));
+
+        // Act
+        outboxRelay.relay();
+
+        // Assert
+        assertEquals(List.of(e1, e2, e3), sink.getEvents());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(outboxRepository, times(2)).findClaimable(any(), eq(2));
+        // claiming and recording the outcome are separate transactions, sinks run in between
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void relayBatch_shouldCommitTheClaimBeforeCallingSinks() throws Exception {
+        // Arrange
+        OutboxEvent e1 = event(1L);
+        OutboxSink mockSink = mock(OutboxSink.class);
+        outboxRelay = new OutboxRelay(outboxRepository, List.of(mockSink), outboxProperties, transactionManager);
+        when(outboxRepository.findClaimable(any(), eq(2))).thenReturn(List.of(e1));
+
+        // Act
+        outboxRelay.relayBatch();
+
+        // Assert
+        InOrder inOrder = inOrder(outboxRepository, transactionManager, mockSink);
+        inOrder.verify(outboxRepository).lockClaims(anyLong());
+        inOrder.verify(outboxRepository).findClaimable(any(), eq(2));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(mockSink).publish(e1);
+        inOrder.verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        inOrder.verify(transactionManager).commit(any());
+        assertNull(e1.getClaimedUntil());
+        outboxRelay.shutdown();
+    }
+
+    @Test
+    void relayBatch_shouldHoldBackLaterEventsOfAFailedAggregateOnly() {
+        // Arrange
+        outboxProperties.setBatchSize(3);
+        OutboxEvent e1 = event(1L, 10L), e2 = event(2L, 10L), e3 = event(3L, 20L);
+        when(outboxRepository.findClaimable(any(), eq(3))).thenReturn(List.of(e1, e2, e3));
+        sink.failOn(1L);
+
+        // Act
+        boolean more = outboxRelay.relayBatch();
+
+        // Assert
+        assertFalse(more);
+        assertEquals(List.of(e3), sink.getEvents());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(outboxRepository).saveAll(List.of(e1, e2));
+        assertEquals(1, e1.getAttempts());
+        assertEquals("Sink unavailable", e1.getLastError());
+        assertNotNull(e1.getNextAttemptAt());
+        assertEquals(0, e2.getAttempts());
+        assertNull(e2.getClaimedUntil());
+    }
+
+    @Test
+    void relayBatch_shouldParkEventAfterMaxAttemptsAndDeliverTheRest() {
+        // Arrange
+        outboxProperties.setMaxAttempts(3);
+        OutboxEvent e1 = event(1L), e2 = event(2L);
+        e1.setAttempts(2);
+        e1.setNextAttemptAt(Instant.now().minusSeconds(1));
+        when(outboxRepository.findClaimable(any(), eq(2))).thenReturn(List.of(e1, e2));
+        sink.failOn(1L);
+
+        // Act
+        boolean more = outboxRelay.relayBatch();
+
+        // Assert
+        assertTrue(more);
+        assertEquals(List.of(e2), sink.getEvents());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(2L));
+        verify(outboxRepository).saveAll(List.of(e1));
+        assertEquals(3, e1.getAttempts());
+        assertNotNull(e1.getParkedAt());
+    }
+
+    @Test
+    void relayBatch_shouldGiveUpOnSinkThatDoesNotAnswer() {
+        // Arrange
+        outboxProperties.setSinkTimeout(Duration.ofMillis(50));
+        OutboxSink hungSink = event -> Thread.sleep(10_000);
+        outboxRelay = new OutboxRelay(outboxRepository, List.of(hungSink), outboxProperties, transactionManager);
+        OutboxEvent e1 = event(1L);
+        when(outboxRepository.findClaimable(any(), eq(2))).thenReturn(List.of(e1));
+
+        // Act
+        boolean more = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> outboxRelay.relayBatch());
+
+        // Assert
+        assertFalse(more);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of());
+        verify(outboxRepository).saveAll(List.of(e1));
+        assertEquals(1, e1.getAttempts());
+        assertNotNull(e1.getNextAttemptAt());
+        assertTrue(e1.getLastError().contains("did not answer"));
+        outboxRelay.shutdown();
+    }
+
+    @Test
+    void relay_shouldDoNothingWhenDisabled() {
+        outboxProperties.setRelayEnabled(false);
+
+        outboxRelay.relay();
+
+        verify(outboxRepository, never()).findClaimable(any(), anyInt());
+        verifyNoInteractions(transactionManager);
+    }
+
+    private static OutboxEvent event(Long id) {
+        return event(id, id);
+    }
+
+    private static OutboxEvent event(Long id, Long orderId) {
+        OutboxEvent event = new OutboxEvent("Order", orderId, "OrderCreated", "{}");
+        event.setId(id);
+        return event;
+    }
+}
@@ -1,23 +1,30 @@
     package com.beytullahpaytar.ecommerce.services;
 
+    import com.beytullahpaytar.ecommerce.config.CartProperties;
     import com.beytullahpaytar.ecommerce.dto.CartItemDto;
     import com.beytullahpaytar.ecommerce.models.Cart;
     import com.beytullahpaytar.ecommerce.models.CartItem;
     import com.beytullahpaytar.ecommerce.models.Item;
+    import com.beytullahpaytar.ecommerce.models.Money;
     import com.beytullahpaytar.ecommerce.repository.CartItemRepository;
     import com.beytullahpaytar.ecommerce.repository.CartRepository;
+    import jakarta.persistence.EntityNotFoundException;
     import org.junit.jupiter.api.BeforeEach;
     import org.junit.jupiter.api.Test;
 
     import java.util.ArrayList;
     import java.util.List;
+    import java.util.Map;
     import java.util.Optional;
+    import java.util.Set;
 
     import static org.junit.jupiter.api.Assertions.*;
     import static org.mockito.Mockito.*;
 
     class CartServiceTest {
 
+        private static final String TOKEN = "test-cart-token";
+
         private CartRepository cartRepository;
         private CartItemRepository cartItemRepository;
         private ItemService itemService;
@@ -28,32 +35,153 @@
             cartRepository = mock(CartRepository.class);
             cartItemRepository = mock(CartItemRepository.class);
             itemService = mock(ItemService.class);
-            cartService = new CartService(cartRepository, cartItemRepository, itemService);
+            cartService = new CartService(cartRepository, cartItemRepository, itemService, new CartProperties());
         }
 
         @Test
         void testAddItemToCart_shouldCreateNewCartAndAddItem() {
-            Cart newCart = new Cart();
-            newCart.setId(1L);
-            newCart.setCartItems(new ArrayList<>());
-
             Item item = new Item();
             item.setId(10L);
-            item.setPrice(100.0);
+            item.setPrice(Money.valueOf("100.00"));
+
+            Cart cart = new Cart();
+            cart.setId(1L);
+            cart.setToken(TOKEN);
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(null);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(null, cart);
+            when(cartRepository.insertOpenCart(TOKEN)).thenReturn(1);
             when(itemService.getItem(10L)).thenReturn(item);
+            when(cartItemRepository.upsertQuantity(1L, 10L, 3)).thenReturn(1);
 
             CartItemDto dto = new CartItemDto(10L, 3);
 
-            cartService.addItemToCart(dto);
+            cartService.addItemToCart(TOKEN, dto);
+
+            verify(cartRepository).insertOpenCart(TOKEN);
+            verify(cartItemRepository, times(1)).upsertQuantity(1L, 10L, 3);
+        }
+
+        @Test
+        void testAddItemToCart_shouldLookUpOpenCartOnlyOnce() {
+            Cart cart = new Cart();
+            cart.setId(1L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(itemService.getItem(10L)).thenReturn(new Item());
+            when(cartItemRepository.upsertQuantity(1L, 10L, 1)).thenReturn(1);
+
+            cartService.addItemToCart(TOKEN, new CartItemDto(10L, 1));
+            cartService.addItemToCart(TOKEN, new CartItemDto(10L, 1));
+
+            verify(cartRepository, times(1)).findFirstByTokenAndIsCompletedFalse(TOKEN);
+            verify(cartItemRepository, times(2)).upsertQuantity(1L, 10L, 1);
+        }
+
+        @Test
+        void testAddItemToCart_shouldRetryWithNewCartWhenRememberedCartWasCompleted() {
+            Cart completedCart = new Cart();
+            completedCart.setId(1L);
+            Cart openCart = new Cart();
+            openCart.setId(2L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(completedCart, openCart);
+            when(itemService.getItem(10L)).thenReturn(new Item());
+            when(cartItemRepository.upsertQuantity(1L, 10L, 1)).thenReturn(0);
+            when(cartItemRepository.upsertQuantity(2L, 10L, 1)).thenReturn(1);
+
+            cartService.addItemToCart(TOKEN, new CartItemDto(10L, 1));
+
+            verify(cartItemRepository, times(1)).upsertQuantity(2L, 10L, 1);
+        }
+
+        @Test
+        void testAddItemToCart_shouldFailInsteadOfDroppingTheAdditionWhenEveryCartIsClosed() {
+            Cart cart = new Cart();
+            cart.setId(1L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(itemService.getItem(10L)).thenReturn(new Item());
+            when(cartItemRepository.upsertQuantity(1L, 10L, 1)).thenReturn(0);
+
+            assertThrows(CartConflictException.class, () -> cartService.addItemToCart(TOKEN, new CartItemDto(10L, 1)));
+
+            verify(cartItemRepository, times(3)).upsertQuantity(1L, 10L, 1);
+        }
+
+        @Test
+        void testAddItemToCart_shouldRejectUnknownItem() {
+            when(itemService.getItem(99L)).thenReturn(null);
+
+            assertThrows(EntityNotFoundException.class, () -> cartService.addItemToCart(TOKEN, new CartItemDto(99L, 1)));
+
+            verify(cartItemRepository, never()).upsertQuantity(any(), any(), anyInt());
+        }
+
+        @Test
+        void testAddItemsToCart_shouldMergeIntoExistingLinesAndAddNewOnes() {
+            Item item1 = new Item();
+            item1.setId(10L);
+            Item item2 = new Item();
+            item2.setId(20L);
+
+            Cart cart = new Cart();
+            cart.setId(1L);
+            cart.getCartItems().add(new CartItem(5L, item1, 1, cart));
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cart));
+            when(itemService.getItems(Set.of(10L, 20L))).thenReturn(Map.of(10L, item1, 20L, item2));
 
-            verify(cartRepository).save(any(Cart.class));
-            verify(cartItemRepository).save(argThat(cartItem ->
-                    cartItem.getItem().getId().equals(10L) &&
-                            cartItem.getQuantity() == 3 &&
-                            cartItem.getCart() != null
+            cartService.addItemsToCart(TOKEN, List.of(
+                    new CartItemDto(10L, 2),
+                    new CartItemDto(20L, 1),
+                    new CartItemDto(20L, 3)
             ));
+
+            assertEquals(2, cart.getCartItems().size());
+            assertEquals(3, cart.getCartItems().get(0).getQuantity());
+            CartItem newLine = cart.getCartItems().get(1);
+            assertEquals(20L, newLine.getItem().getId());
+            assertEquals(4, newLine.getQuantity());
+            assertSame(cart, newLine.getCart());
+        }
+
+        @Test
+        void testAddItemsToCart_shouldRejectUnknownItems() {
+            when(itemService.getItems(Set.of(10L, 99L))).thenReturn(Map.of(10L, new Item()));
+
+            assertThrows(EntityNotFoundException.class, () -> cartService.addItemsToCart(TOKEN, List.of(
+                    new CartItemDto(10L, 1),
+                    new CartItemDto(99L, 1)
+            )));
+
+            verify(cartRepository, never()).findByIdForUpdate(any());
+        }
+
+        @Test
+        void testGetCart_shouldKeepCartsOfDifferentTokensApart() {
+            Cart cart1 = new Cart();
+            cart1.setId(1L);
+            Cart cart2 = new Cart();
+            cart2.setId(2L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse("token-one")).thenReturn(cart1);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse("token-two")).thenReturn(cart2);
+
+            assertEquals(1L, cartService.getCart("token-one").getId());
+            assertEquals(2L, cartService.getCart("token-two").getId());
+        }
+
+        @Test
+        void testGetCart_shouldReadTheCartOpenedByAConcurrentRequest() {
+            Cart openedConcurrently = new Cart();
+            openedConcurrently.setId(3L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(null, openedConcurrently);
+            when(cartRepository.insertOpenCart(TOKEN)).thenReturn(0);
+
+            assertSame(openedConcurrently, cartService.getCart(TOKEN));
+            verify(cartRepository, never()).save(any());
         }
 
         @Test
@@ -62,51 +190,81 @@
             cart.setId(1L);
             cart.setIsCompleted(false);
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(cart);
-
-            cartService.completeCart();
+            cartService.completeCart(cart);
 
             assertTrue(cart.getIsCompleted());
             verify(cartRepository).save(cart);
         }
 
         @Test
-        void testGetTotalPrice_shouldReturnCorrectSum() {
+        void testCompleteCart_shouldForgetCompletedCart() {
+            Cart cart = new Cart();
+            cart.setId(1L);
+            cart.setToken(TOKEN);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartItemRepository.deleteFromOpenCart(7L, 1L)).thenReturn(1);
+
+            cartService.getCart(TOKEN);
+            cartService.completeCart(cart);
+            cartService.removeItemFromCart(TOKEN, 7L);
+
+            // the cart id is looked up again instead of reusing the completed cart
+            verify(cartRepository, times(2)).findFirstByTokenAndIsCompletedFalse(TOKEN);
+        }
+
+        @Test
+        void testLockOpenCart_shouldLockRememberedCart() {
             Cart cart = new Cart();
-            List<CartItem> items = new ArrayList<>();
+            cart.setId(1L);
 
-            Item item1 = new Item();
-            item1.setPrice(50.0);
-            CartItem cartItem1 = new CartItem();
-            cartItem1.setItem(item1);
-            cartItem1.setQuantity(2);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cart));
 
-            Item item2 = new Item();
-            item2.setPrice(30.0);
-            CartItem cartItem2 = new CartItem();
-            cartItem2.setItem(item2);
-            cartItem2.setQuantity(1);
+            assertSame(cart, cartService.lockOpenCart(TOKEN));
+        }
+
+        @Test
+        void testGetCartWithItems_shouldFetchCartGraphById() {
+            Cart cart = new Cart();
+            cart.setId(1L);
 
-            items.add(cartItem1);
-            items.add(cartItem2);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartRepository.findWithItemsById(1L)).thenReturn(Optional.of(cart));
+
+            cartService.getCart(TOKEN);
+            Cart result = cartService.getCartWithItems(TOKEN);
+
+            assertSame(cart, result);
+            verify(cartRepository, times(1)).findFirstByTokenAndIsCompletedFalse(TOKEN);
+        }
 
-            cart.setCartItems(items);
+        @Test
+        void testGetCartWithItems_shouldReplaceCompletedCart() {
+            Cart completedCart = new Cart();
+            completedCart.setId(1L);
+            completedCart.setIsCompleted(true);
+            Cart openCart = new Cart();
+            openCart.setId(2L);
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(cart);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(completedCart, openCart);
+            when(cartRepository.findWithItemsById(1L)).thenReturn(Optional.of(completedCart));
+            when(cartRepository.findWithItemsById(2L)).thenReturn(Optional.of(openCart));
 
-            Double total = cartService.getTotalPrice();
+            Cart result = cartService.getCartWithItems(TOKEN);
 
-            assertEquals(130.0, total);
+            assertEquals(2L, result.getId());
         }
 
         @Test
         void testClearCart_shouldRemoveAllItems() {
             Cart cart = new Cart();
+            cart.setId(1L);
             cart.setCartItems(new ArrayList<>(List.of(new CartItem(), new CartItem())));
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(cart);
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
 
-            cartService.clearCart();
+            cartService.clearCart(TOKEN);
 
             assertTrue(cart.getCartItems().isEmpty());
             verify(cartRepository).save(cart);
@@ -114,14 +272,44 @@
 
         @Test
         void testRemoveItemFromCart_shouldDeleteIfExists() {
-            CartItem item = new CartItem();
-            item.setId(7L);
+            Cart cart = new Cart();
+            cart.setId(1L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartItemRepository.deleteFromOpenCart(7L, 1L)).thenReturn(1);
+
+            cartService.removeItemFromCart(TOKEN, 7L);
+
+            verify(cartItemRepository, times(1)).deleteFromOpenCart(7L, 1L);
+        }
+
+        @Test
+        void testRemoveItemFromCart_shouldIgnoreItemsOfOtherCarts() {
+            Cart cart = new Cart();
+            cart.setId(1L);
+
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart);
+            when(cartItemRepository.deleteFromOpenCart(7L, 1L)).thenReturn(0);
+
+            cartService.removeItemFromCart(TOKEN, 7L);
+
+            verify(cartItemRepository, never()).delete(any());
+        }
+
+        @Test
+        void testRemoveItemFromCart_shouldRetryWithNewCartWhenRememberedCartWasCompleted() {
+            Cart completedCart = new Cart();
+            completedCart.setId(1L);
+            Cart openCart = new Cart();
+            openCart.setId(2L);
 
-            when(cartItemRepository.findById(7L)).thenReturn(Optional.of(item));
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(completedCart, openCart);
+            when(cartItemRepository.deleteFromOpenCart(7L, 1L)).thenReturn(0);
+            when(cartItemRepository.deleteFromOpenCart(7L, 2L)).thenReturn(1);
 
-            cartService.removeItemFromCart(7L);
+            cartService.removeItemFromCart(TOKEN, 7L);
 
-            verify(cartItemRepository).delete(item);
+            verify(cartItemRepository).deleteFromOpenCart(7L, 2L);
         }
 
         @Test
@@ -133,17 +321,18 @@
 
             Item item = new Item();
             item.setId(10L);
-            item.setPrice(99.99);
+            item.setPrice(Money.valueOf("99.99"));
             item.setName("Test Item");
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(null, cart); // First call returns null to create a new cart, second for getCart
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(null, cart); // First call returns null to create a new cart, second reads it back
+            when(cartRepository.insertOpenCart(TOKEN)).thenReturn(1);
             when(itemService.getItem(10L)).thenReturn(item);
-            when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            when(cartItemRepository.upsertQuantity(1L, 10L, 2)).thenReturn(1);
 
             CartItemDto dto = new CartItemDto(10L, 2);
 
             // Add item to cart
-            cartService.addItemToCart(dto);
+            cartService.addItemToCart(TOKEN, dto);
 
             // Now mock returning the updated cart with the added cart item
             CartItem addedCartItem = new CartItem();
@@ -153,9 +342,9 @@
 
             cart.getCartItems().add(addedCartItem);
 
-            when(cartRepository.findFirstByIsCompletedFalse()).thenReturn(cart); // for getCart()
+            when(cartRepository.findFirstByTokenAndIsCompletedFalse(TOKEN)).thenReturn(cart); // for getCart()
 
-            Cart retrievedCart = cartService.getCart();
+            Cart retrievedCart = cartService.getCart(TOKEN);
 
             assertNotNull(retrievedCart);
             assertEquals(1, retrievedCart.getCartItems().size());
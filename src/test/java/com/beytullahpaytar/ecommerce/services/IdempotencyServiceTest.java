@@ -0,0 +1,121 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(new OrderProperties());
+    }
+
+    @Test
+    void testExecute_shouldReplayResultForSameKey() {
+        AtomicInteger runs = new AtomicInteger();
+
+        Integer first = idempotencyService.execute("key", runs::incrementAndGet);
+        Integer second = idempotencyService.execute("key", runs::incrementAndGet);
+
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testExecute_shouldRunDifferentKeysSeparately() {
+        AtomicInteger runs = new AtomicInteger();
+
+        idempotencyService.execute("key-1", runs::incrementAndGet);
+        idempotencyService.execute("key-2", runs::incrementAndGet);
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testExecute_shouldForgetFailuresSoRetriesRun() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals("ok", idempotencyService.execute("key", () -> "ok"));
+    }
+
+    @Test
+    void testExecute_shouldForgetActionsFailingWithAnError() {
+        assertThrows(AssertionError.class, () -> idempotencyService.execute("key", () -> {
+            throw new AssertionError("boom");
+        }));
+
+        assertEquals("ok", idempotencyService.execute("key", () -> "ok"));
+    }
+
+    @Test
+    void testExecute_shouldStopWaitingForAHungDuplicate() throws Exception {
+        OrderProperties properties = new OrderProperties();
+        properties.setIdempotencyWaitTimeout(Duration.ofMillis(100));
+        idempotencyService = new IdempotencyService(properties);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> first = executor.submit(() -> idempotencyService.execute("key", () -> {
+            running.countDown();
+            awaitQuietly(release);
+            return "first";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> idempotencyService.execute("key", () -> "second"));
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("first", idempotencyService.execute("key", () -> "second"));
+        executor.shutdown();
+    }
+
+    @Test
+    void testExecute_shouldCollapseConcurrentDuplicates() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<Integer> first = executor.submit(() -> idempotencyService.execute("key", () -> {
+            running.countDown();
+            awaitQuietly(release);
+            return runs.incrementAndGet();
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Future<Integer> duplicate1 = executor.submit(() -> idempotencyService.execute("key", runs::incrementAndGet));
+        Future<Integer> duplicate2 = executor.submit(() -> idempotencyService.execute("key", runs::incrementAndGet));
+        release.countDown();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, duplicate1.get(5, TimeUnit.SECONDS));
+        assertEquals(1, duplicate2.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        executor.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.InventoryProperties;
+import com.beytullahpaytar.ecommerce.models.Cart;
+import com.beytullahpaytar.ecommerce.models.CartItem;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryServiceTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ItemService itemService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final InventoryProperties inventoryProperties = new InventoryProperties();
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        inventoryService = new InventoryService(itemRepository, itemService, inventoryProperties, transactionManager);
+    }
+
+    @Test
+    void reserve_shouldDecrementRowsInItemIdOrder() {
+        Cart cart = cart(line(30L, 1), line(10L, 2), line(20L, 3));
+        when(itemRepository.reserveStock(anyLong(), anyInt())).thenReturn(1);
+
+        inventoryService.reserve(cart);
+
+        InOrder inOrder = inOrder(itemRepository);
+        inOrder.verify(itemRepository).reserveStock(10L, 2);
+        inOrder.verify(itemRepository).reserveStock(20L, 3);
+        inOrder.verify(itemRepository).reserveStock(30L, 1);
+        verify(itemService).evictAfterCommit(10L);
+        verify(itemService).evictAfterCommit(20L);
+        verify(itemService).evictAfterCommit(30L);
+    }
+
+    @Test
+    void reserve_shouldThrowWhenARowHasTooLittleStock() {
+        Cart cart = cart(line(10L, 2), line(20L, 5));
+        when(itemRepository.reserveStock(10L, 2)).thenReturn(1);
+        when(itemRepository.reserveStock(20L, 5)).thenReturn(0);
+
+        OutOfStockException e = assertThrows(OutOfStockException.class, () -> inventoryService.reserve(cart));
+        assertTrue(e.getMessage().contains("20"));
+    }
+
+    @Test
+    void reserve_hotItem_shouldLeaseAChunkOnceAndServeLaterCheckoutsFromMemory() {
+        inventoryProperties.setHotItemIds(Set.of(10L));
+        inventoryProperties.setHotStockChunkSize(10);
+        when(itemRepository.claimStock(10L, 10)).thenReturn(List.of(10));
+
+        for (int i = 0; i < 5; i++) {
+            inventoryService.reserve(cart(line(10L, 2)));
+        }
+
+        verify(itemRepository, times(1)).claimStock(10L, 10);
+        verify(itemRepository, never()).reserveStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void reserve_hotItem_shouldFallBackToTheRowWhenNothingCanBeLeased() {
+        inventoryProperties.setHotItemIds(Set.of(10L));
+        when(itemRepository.claimStock(eq(10L), anyInt())).thenReturn(List.of());
+        when(itemRepository.reserveStock(10L, 1)).thenReturn(0);
+
+        assertThrows(OutOfStockException.class, () -> inventoryService.reserve(cart(line(10L, 1))));
+    }
+
+    @Test
+    void flushHotStock_shouldReturnUnusedLeasedUnits() {
+        inventoryProperties.setHotItemIds(Set.of(10L));
+        inventoryProperties.setHotStockChunkSize(10);
+        when(itemRepository.claimStock(10L, 10)).thenReturn(List.of(10));
+        inventoryService.reserve(cart(line(10L, 3)));
+
+        inventoryService.flushHotStock();
+        inventoryService.flushHotStock();
+
+        verify(itemRepository, times(1)).releaseStock(10L, 7);
+    }
+
+    @Test
+    void reserve_hotItem_shouldGiveLeasedUnitsBackWhenTheCheckoutRollsBack() {
+        inventoryProperties.setHotItemIds(Set.of(10L));
+        inventoryProperties.setHotStockChunkSize(10);
+        when(itemRepository.claimStock(10L, 10)).thenReturn(List.of(10));
+
+        reserveAndRollBack(cart(line(10L, 3)));
+        inventoryService.flushHotStock();
+
+        verify(itemRepository).releaseStock(10L, 10);
+    }
+
+    @Test
+    void setStock_shouldDropUnitsGivenBackByCheckoutsFromBeforeIt() {
+        inventoryProperties.setHotItemIds(Set.of(10L));
+        inventoryProperties.setHotStockChunkSize(10);
+        when(itemRepository.claimStock(10L, 10)).thenReturn(List.of(10));
+        when(itemRepository.setStock(10L, 50)).thenReturn(1);
+
+        List<TransactionSynchronization> checkout = reserve(cart(line(10L, 3)));
+        inventoryService.setStock(10L, 50);
+        checkout.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        inventoryService.flushHotStock();
+
+        verify(itemRepository, never()).releaseStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void setStock_shouldEvictTheCachedItem() {
+        when(itemRepository.setStock(10L, 5)).thenReturn(1);
+
+        inventoryService.setStock(10L, 5);
+
+        verify(itemService).evictAfterCommit(10L);
+    }
+
+    @Test
+    void setStock_shouldRejectUnknownItems() {
+        when(itemRepository.setStock(99L, 5)).thenReturn(0);
+
+        assertThrows(EntityNotFoundException.class, () -> inventoryService.setStock(99L, 5));
+    }
+
+    @Test
+    void setStock_shouldRejectNegativeStock() {
+        assertThrows(InvalidRequestException.class, () -> inventoryService.setStock(10L, -1));
+
+        verify(itemRepository, never()).setStock(anyLong(), any());
+    }
+
+    // Reserves as a checkout transaction would and returns its synchronizations, to complete by hand
+    private List<TransactionSynchronization> reserve(Cart cart) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inventoryService.reserve(cart);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void reserveAndRollBack(Cart cart) {
+        reserve(cart).forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private static CartItem line(Long itemId, int quantity) {
+        Item item = new Item();
+        item.setId(itemId);
+        CartItem cartItem = new CartItem();
+        cartItem.setItem(item);
+        cartItem.setQuantity(quantity);
+        return cartItem;
+    }
+
+    private static Cart cart(CartItem... lines) {
+        Cart cart = new Cart();
+        cart.getCartItems().addAll(List.of(lines));
+        return cart;
+    }
+}
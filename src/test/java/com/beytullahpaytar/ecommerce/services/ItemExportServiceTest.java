@@ -0,0 +1,62 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ItemExportServiceTest {
+
+    private ItemRepository itemRepository;
+    private EntityManager entityManager;
+    private ItemExportService itemExportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        entityManager = mock(EntityManager.class);
+        itemExportService = new ItemExportService(itemRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    void testExportItems_shouldWriteJsonArrayAndDetachEachItem() throws IOException {
+        Item item1 = new Item(1L, "Item1", "Desc1", Money.valueOf("1.00"), "img1.jpg");
+        Item item2 = new Item(2L, "Item2", "Desc2", Money.valueOf("2.00"), "img2.jpg");
+        when(itemRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(item1, item2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        itemExportService.exportItems(out);
+
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        assertTrue(json.isArray());
+        assertEquals(2, json.size());
+        assertEquals("Item1", json.get(0).get("name").asText());
+        assertEquals(2, json.get(1).get("id").asLong());
+
+        verify(entityManager).detach(item1);
+        verify(entityManager).detach(item2);
+    }
+
+    @Test
+    void testExportItems_shouldWriteEmptyArrayForEmptyCatalog() throws IOException {
+        when(itemRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        itemExportService.exportItems(out);
+
+        assertEquals("[]", out.toString());
+    }
+}
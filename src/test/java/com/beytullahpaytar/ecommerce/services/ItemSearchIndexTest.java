@@ -0,0 +1,91 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemSearchIndexTest {
+
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemSearchIndex();
+        put(1, "Leather Boots", "Brown leather boots for winter");
+        put(2, "Running Shoes", "Light shoes for running on roads");
+        put(3, "Boot Polish", "Keeps leather boots shiny");
+        put(4, "Café Mug", "Ceramic mug for coffee");
+    }
+
+    @Test
+    void tokenize_shouldLowerCaseAndDropAccentsAndPunctuation() {
+        assertEquals(List.of("cafe", "au", "lait", "2"), ItemSearchIndex.tokenize("Café-au-LAIT, 2!"));
+        assertEquals(List.of(), ItemSearchIndex.tokenize(null));
+    }
+
+    @Test
+    void search_shouldRankNameMatchesFirst() {
+        assertEquals(List.of(1L, 3L), ids(search("boots")));
+    }
+
+    @Test
+    void search_shouldRequireEveryToken() {
+        assertEquals(List.of(3L), ids(search("polish leather")));
+        assertEquals(List.of(), search("polish running"));
+    }
+
+    @Test
+    void search_shouldMatchPrefixesBelowExactTerms() {
+        // "boot" is the exact name term of 3, a prefix of "boots" for 1
+        assertEquals(List.of(3L, 1L), ids(search("boot")));
+        assertEquals(List.of(2L), ids(search("runn")));
+        assertEquals(List.of(4L), ids(search("cafe")));
+    }
+
+    @Test
+    void search_shouldKeepOnlyTheBestHits() {
+        assertEquals(List.of(1L), ids(index.search(List.of("leather"), 1, 1.2, 0.75, 50)));
+    }
+
+    @Test
+    void put_shouldReplaceThePreviousVersion() {
+        put(2, "Trail Shoes", "Shoes for trails");
+
+        assertEquals(List.of(), search("running"));
+        assertEquals(List.of(2L), ids(search("trail")));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void remove_shouldDropTheItem() {
+        index.remove(1);
+
+        assertEquals(List.of(3L), ids(search("boots")));
+    }
+
+    @Test
+    void merge_shouldCombineSegments() {
+        ItemSearchIndex segment = new ItemSearchIndex();
+        segment.put(5, ItemSearchIndex.analyze("Winter Boots", "Warm", 3));
+
+        index.merge(segment);
+
+        assertEquals(5, index.size());
+        assertTrue(ids(search("winter")).containsAll(List.of(1L, 5L)));
+    }
+
+    private void put(long id, String name, String description) {
+        index.put(id, ItemSearchIndex.analyze(name, description, 3));
+    }
+
+    private List<ItemSearchIndex.Hit> search(String query) {
+        return index.search(ItemSearchIndex.tokenize(query), 10, 1.2, 0.75, 50);
+    }
+
+    private static List<Long> ids(List<ItemSearchIndex.Hit> hits) {
+        return hits.stream().map(ItemSearchIndex.Hit::itemId).toList();
+    }
+}
@@ -1,14 +1,31 @@
 package com.beytullahpaytar.ecommerce.services;
 
+import com.beytullahpaytar.ecommerce.config.CatalogProperties;
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
+import com.beytullahpaytar.ecommerce.dto.CacheStatsDto;
 import com.beytullahpaytar.ecommerce.dto.ItemDto;
+import com.beytullahpaytar.ecommerce.dto.ItemFilter;
+import com.beytullahpaytar.ecommerce.dto.ItemPageDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSearchHitDto;
+import com.beytullahpaytar.ecommerce.dto.ItemSortKey;
+import com.beytullahpaytar.ecommerce.dto.ItemSummaryDto;
+import com.beytullahpaytar.ecommerce.fileupload.ContentAddressedImageStore;
+import com.beytullahpaytar.ecommerce.fileupload.FileSystemStorageService;
+import com.beytullahpaytar.ecommerce.fileupload.ImageDerivativeService;
+import com.beytullahpaytar.ecommerce.fileupload.InvalidUploadException;
+import com.beytullahpaytar.ecommerce.fileupload.StorageException;
+import com.beytullahpaytar.ecommerce.fileupload.StorageProperties;
 import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
 import com.beytullahpaytar.ecommerce.repository.ItemRepository;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.*;
 import java.util.*;
 
@@ -20,7 +37,18 @@ public class ItemServiceTest {
     @Mock
     private ItemRepository itemRepository;
 
-    @InjectMocks
+    @Mock
+    private ContentAddressedImageStore imageStore;
+
+    @Mock
+    private ImageDerivativeService imageDerivativeService;
+
+    @Mock
+    private ItemSearchService itemSearchService;
+
+    @Mock
+    private TypeaheadService typeaheadService;
+
     private ItemService itemService;
 
     @TempDir
@@ -29,7 +57,11 @@ public class ItemServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        itemService.setPath(tempUploadDir);
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(tempUploadDir.toString());
+        itemService = new ItemService(itemRepository, new CatalogProperties(),
+                new FileSystemStorageService(storageProperties), imageStore, imageDerivativeService,
+                itemSearchService, typeaheadService, new SearchProperties());
     }
 
     @Test
@@ -39,7 +71,7 @@ public class ItemServiceTest {
         Path tempFile = tempUploadDir.resolve(originalFile);
         Files.createFile(tempFile);
 
-        ItemDto dto = new ItemDto("Test Item", "Nice item", 99.99, originalFile);
+        ItemDto dto = new ItemDto("Test Item", "Nice item", new BigDecimal("99.99"), originalFile);
 
         // When
         ResponseEntity<String> response = itemService.addItem(dto);
@@ -53,12 +85,45 @@ public class ItemServiceTest {
 
         assertTrue(Files.exists(tempUploadDir.resolve(finalFile)));
         assertFalse(Files.exists(tempFile));
+        verify(itemSearchService).index(argThat(item -> item.getName().equals("Test Item")));
+        verify(typeaheadService).index(argThat(item -> item.getName().equals("Test Item")));
+    }
+
+    @Test
+    void testAddItem_shouldRejectAMissingUploadBeforeSaving() {
+        ItemDto dto = new ItemDto("Test Item", "Nice item", new BigDecimal("99.99"), "tempFilegone.jpg");
+
+        assertThrows(InvalidUploadException.class, () -> itemService.addItem(dto));
+
+        verify(itemRepository, never()).save(any());
+        verify(itemSearchService, never()).index(any());
+    }
+
+    @Test
+    void testAddItem_shouldStillCacheAndIndexWhenTheImageFailsToStore() {
+        when(imageStore.isEnabled()).thenReturn(true);
+        when(imageStore.reference("tempFilesample.jpg")).thenReturn("ab/cd/abcd.jpg");
+        doThrow(new StorageException("disk full")).when(imageStore).storeFile("tempFilesample.jpg", "ab/cd/abcd.jpg");
+        when(itemRepository.save(any())).thenAnswer(invocation -> {
+            Item saved = invocation.getArgument(0);
+            saved.setId(7L);
+            return saved;
+        });
+
+        ResponseEntity<String> response = itemService.addItem(
+                new ItemDto("Test Item", "Nice item", new BigDecimal("99.99"), "tempFilesample.jpg"));
+
+        assertEquals("Item added successfully", response.getBody());
+        assertEquals("Test Item", itemService.getItem(7L).getName());
+        verify(itemRepository, never()).findById(7L);
+        verify(itemSearchService).index(argThat(item -> item.getName().equals("Test Item")));
+        verify(typeaheadService).index(argThat(item -> item.getName().equals("Test Item")));
     }
 
     @Test
     void testUpdateItem_shouldReplaceImageIfDifferent() throws IOException {
         // Given
-        Item existingItem = new Item(1L, "Old", "Old", 10.0, "old.jpg");
+        Item existingItem = new Item(1L, "Old", "Old", Money.valueOf("10.00"), "old.jpg");
         when(itemRepository.findById(1L)).thenReturn(Optional.of(existingItem));
 
         Path oldImage = tempUploadDir.resolve("old.jpg");
@@ -67,7 +132,7 @@ public class ItemServiceTest {
         Path newTempImage = tempUploadDir.resolve("tempFilenew.jpg");
         Files.createFile(newTempImage);
 
-        ItemDto updatedDto = new ItemDto("Updated", "Updated", 20.0, "tempFilenew.jpg");
+        ItemDto updatedDto = new ItemDto("Updated", "Updated", new BigDecimal("20.0"), "tempFilenew.jpg");
 
         // When
         ResponseEntity<String> response = itemService.updateItem(1L, updatedDto);
@@ -87,7 +152,7 @@ public class ItemServiceTest {
     void testUpdateItem_shouldReturnNotFoundIfItemDoesNotExist() {
         when(itemRepository.findById(999L)).thenReturn(Optional.empty());
 
-        ItemDto dto = new ItemDto("A", "B", 1.0, "tempFile_doesntmatter.jpg");
+        ItemDto dto = new ItemDto("A", "B", new BigDecimal("1.0"), "tempFile_doesntmatter.jpg");
 
         ResponseEntity<String> response = itemService.updateItem(999L, dto);
 
@@ -97,7 +162,7 @@ public class ItemServiceTest {
 
     @Test
     void testGetItem_shouldReturnCorrectItem() {
-        Item item = new Item(1L, "Item", "Desc", 10.0, "img.jpg");
+        Item item = new Item(1L, "Item", "Desc", Money.valueOf("10.00"), "img.jpg");
         when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
 
         Item result = itemService.getItem(1L);
@@ -106,11 +171,81 @@ public class ItemServiceTest {
         assertEquals("Item", result.getName());
     }
 
+    @Test
+    void testGetItem_shouldServeRepeatedReadsFromCache() {
+        Item item = new Item(1L, "Item", "Desc", Money.valueOf("10.00"), "img.jpg");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+
+        itemService.getItem(1L);
+        Item result = itemService.getItem(1L);
+
+        assertSame(item, result);
+        verify(itemRepository, times(1)).findById(1L);
+
+        CacheStatsDto stats = itemService.getItemCacheStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void testGetItem_shouldNotCacheMissingItems() {
+        when(itemRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertNull(itemService.getItem(2L));
+        assertNull(itemService.getItem(2L));
+
+        verify(itemRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void testUpdateItem_shouldRefreshCachedItem() throws IOException {
+        Item existingItem = new Item(1L, "Old", "Old", Money.valueOf("10.00"), "same.jpg");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(existingItem));
+        itemService.getItem(1L);
+
+        itemService.updateItem(1L, new ItemDto("Updated", "Updated", new BigDecimal("20.0"), "same.jpg"));
+        Item result = itemService.getItem(1L);
+
+        assertEquals("Updated", result.getName());
+        assertEquals(Money.valueOf("20.00"), result.getPrice());
+        // once for the first getItem and once inside updateItem, the last read is a cache hit
+        verify(itemRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testUpdateItem_shouldCacheACopyOfTheSavedItem() {
+        Item existingItem = new Item(1L, "Old", "Old", Money.valueOf("10.00"), "same.jpg");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(existingItem));
+
+        itemService.updateItem(1L, new ItemDto("Updated", "Updated", new BigDecimal("20.0"), "same.jpg"));
+        existingItem.setName("Changed after the update");
+        Item result = itemService.getItem(1L);
+
+        assertNotSame(existingItem, result);
+        assertEquals("Updated", result.getName());
+    }
+
+    @Test
+    void testGetItems_shouldLoadOnlyUncachedItemsInOneQuery() {
+        Item item1 = new Item(1L, "Item1", "Desc1", Money.valueOf("1.00"), "img1.jpg");
+        Item item2 = new Item(2L, "Item2", "Desc2", Money.valueOf("2.00"), "img2.jpg");
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item1));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(item2));
+        itemService.getItem(1L);
+
+        Map<Long, Item> items = itemService.getItems(List.of(1L, 2L, 3L));
+
+        assertEquals(2, items.size());
+        assertSame(item1, items.get(1L));
+        assertSame(item2, items.get(2L));
+        verify(itemRepository, times(1)).findAllById(argThat(ids -> !ids.iterator().next().equals(1L)));
+    }
+
     @Test
     void testGetAllItems_shouldReturnList() {
         List<Item> mockList = List.of(
-                new Item(1L, "Item1", "Desc1", 1.0, "img1.jpg"),
-                new Item(2L, "Item2", "Desc2", 2.0, "img2.jpg")
+                new Item(1L, "Item1", "Desc1", Money.valueOf("1.00"), "img1.jpg"),
+                new Item(2L, "Item2", "Desc2", Money.valueOf("2.00"), "img2.jpg")
         );
         when(itemRepository.findAll()).thenReturn(mockList);
 
@@ -120,6 +255,91 @@ public class ItemServiceTest {
         assertEquals("Item1", itemList.getFirst().getName());
     }
 
+    @Test
+    void testGetItemPage_shouldReturnCursorWhenMoreItemsExist() {
+        List<Item> items = List.of(
+                new Item(1L, "Item1", "Desc1", Money.valueOf("1.00"), "img1.jpg"),
+                new Item(2L, "Item2", "Desc2", Money.valueOf("2.00"), "img2.jpg"),
+                new Item(3L, "Item3", "Desc3", Money.valueOf("3.00"), "img3.jpg")
+        );
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(items);
+
+        ItemPageDto<Item> page = itemService.getItemPage(null, 2, "id");
+
+        assertEquals(2, page.items().size());
+        assertNotNull(page.nextCursor());
+
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3))).thenReturn(List.of(items.get(2)));
+
+        ItemPageDto<Item> nextPage = itemService.getItemPage(page.nextCursor(), 2, "id");
+
+        assertEquals(1, nextPage.items().size());
+        assertEquals(3L, nextPage.items().getFirst().getId());
+        assertNull(nextPage.nextCursor());
+    }
+
+    @Test
+    void testGetItemPage_shouldSeekPastLastPriceAndId() {
+        List<Item> items = List.of(
+                new Item(4L, "Item4", "Desc4", Money.valueOf("5.00"), "img4.jpg"),
+                new Item(7L, "Item7", "Desc7", Money.valueOf("5.00"), "img7.jpg")
+        );
+        when(itemRepository.findAllByOrderByPriceAscIdAsc(Limit.of(2))).thenReturn(items);
+
+        ItemPageDto<Item> page = itemService.getItemPage(null, 1, "price");
+        itemService.getItemPage(page.nextCursor(), 1, "price");
+
+        verify(itemRepository).findPageAfterPrice(Money.valueOf("5.00"), 4L, Limit.of(2));
+    }
+
+    @Test
+    void testGetItemPage_shouldRejectCursorOfAnotherSortKey() {
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(
+                new Item(1L, "Item1", "Desc1", Money.valueOf("1.00"), "img1.jpg"),
+                new Item(2L, "Item2", "Desc2", Money.valueOf("2.00"), "img2.jpg")
+        ));
+        String cursor = itemService.getItemPage(null, 1, "id").nextCursor();
+
+        assertThrows(InvalidCursorException.class, () -> itemService.getItemPage(cursor, 1, "name"));
+        assertThrows(InvalidCursorException.class, () -> itemService.getItemPage("not-a-cursor", 1, "id"));
+        assertThrows(InvalidRequestException.class, () -> itemService.getItemPage(null, 1, "colour"));
+    }
+
+    @Test
+    void testGetCatalogPage_shouldSeekPastLastPriceAndIdWithinTheFilter() {
+        ItemFilter filter = new ItemFilter(Money.valueOf("2.00"), Money.valueOf("8.00"));
+        when(itemRepository.findSummaries(filter, ItemSortKey.PRICE, true, null, null, 2)).thenReturn(List.of(
+                new ItemSummaryDto(7L, "Item7", Money.valueOf("5.00"), "img7.jpg"),
+                new ItemSummaryDto(4L, "Item4", Money.valueOf("5.00"), "img4.jpg")
+        ));
+
+        ItemPageDto<ItemSummaryDto> page = itemService.getCatalogPage(filter, null, 1, "price", "desc");
+
+        assertEquals(List.of(7L), page.items().stream().map(ItemSummaryDto::id).toList());
+        assertNotNull(page.nextCursor());
+
+        itemService.getCatalogPage(filter, page.nextCursor(), 1, "price", "desc");
+
+        verify(itemRepository).findSummaries(filter, ItemSortKey.PRICE, true, 7L, Money.valueOf("5.00"), 2);
+    }
+
+    @Test
+    void testGetCatalogPage_shouldRejectCursorOfAnotherDirectionAndInvalidInput() {
+        ItemFilter filter = new ItemFilter(null, null);
+        when(itemRepository.findSummaries(filter, ItemSortKey.NAME, false, null, null, 2)).thenReturn(List.of(
+                new ItemSummaryDto(1L, "A", Money.valueOf("1.00"), "img1.jpg"),
+                new ItemSummaryDto(2L, "B", Money.valueOf("2.00"), "img2.jpg")
+        ));
+        String cursor = itemService.getCatalogPage(filter, null, 1, "name", "asc").nextCursor();
+
+        assertThrows(InvalidCursorException.class,
+                () -> itemService.getCatalogPage(filter, cursor, 1, "name", "desc"));
+        assertThrows(InvalidRequestException.class,
+                () -> itemService.getCatalogPage(filter, null, 1, "name", "sideways"));
+        assertThrows(InvalidRequestException.class,
+                () -> itemService.getCatalogPage(new ItemFilter(Money.valueOf("9.00"), Money.valueOf("3.00")), null, 1, "price", "asc"));
+    }
+
     @Test
     void testHandleImageDelete_shouldDeleteFile() throws IOException {
         Path fileToDelete = tempUploadDir.resolve("delete-me.jpg");
@@ -141,5 +361,49 @@ public class ItemServiceTest {
         assertEquals("sample.jpg", result);
         assertTrue(Files.exists(tempUploadDir.resolve("sample.jpg")));
         assertFalse(Files.exists(originalFile));
+        verify(imageDerivativeService).generate("sample.jpg");
+    }
+
+    @Test
+    void testHandleImageUpload_contentAddressed_shouldPromoteIntoTheImageStore() {
+        when(imageStore.isEnabled()).thenReturn(true);
+        when(imageStore.reference("tempFilesample.jpg")).thenReturn("ab/cd/abcd.jpg");
+
+        assertEquals("ab/cd/abcd.jpg", itemService.handleImageUpload("tempFilesample.jpg"));
+        verify(imageStore).storeFile("tempFilesample.jpg", "ab/cd/abcd.jpg");
+    }
+
+    @Test
+    void testHandleImageDelete_contentAddressed_shouldOnlyReleaseAReference() {
+        when(imageStore.isContentAddressed("ab/cd/abcd.jpg")).thenReturn(true);
+
+        itemService.handleImageDelete("ab/cd/abcd.jpg");
+
+        verify(imageStore).release("ab/cd/abcd.jpg");
+        verify(imageDerivativeService, never()).delete(any());
+    }
+
+    @Test
+    void testSearchItems_shouldReturnHitsInRankOrderWithCachedItems() {
+        Item first = new Item(1L, "Red Shoe", "Leather", Money.valueOf("50.00"), "a.jpg");
+        Item second = new Item(2L, "Red Hat", "Wool", Money.valueOf("20.00"), "b.jpg");
+        when(itemSearchService.search("red", 20)).thenReturn(List.of(
+                new ItemSearchIndex.Hit(2L, 3.0), new ItemSearchIndex.Hit(1L, 1.5), new ItemSearchIndex.Hit(3L, 1.0)));
+        when(itemRepository.findAllById(any())).thenReturn(List.of(first, second));
+
+        List<ItemSearchHitDto> hits = itemService.searchItems("red", null);
+
+        // item 3 was deleted after it was indexed
+        assertEquals(List.of(2L, 1L), hits.stream().map(hit -> hit.item().getId()).toList());
+        assertEquals(3.0, hits.getFirst().score());
+    }
+
+    @Test
+    void testSearchItems_shouldClampTheLimit() {
+        when(itemSearchService.search(any(), anyInt())).thenReturn(List.of());
+
+        itemService.searchItems("red", 1000);
+
+        verify(itemSearchService).search("red", 100);
     }
 }
@@ -1,8 +1,19 @@
 package com.beytullahpaytar.ecommerce.services;
 
+import com.beytullahpaytar.ecommerce.config.OrderProperties;
+import com.beytullahpaytar.ecommerce.dto.BulkOrderStatusResultDto;
 import com.beytullahpaytar.ecommerce.dto.OrderDto;
+import com.beytullahpaytar.ecommerce.dto.OrderFilter;
+import com.beytullahpaytar.ecommerce.dto.OrderPageDto;
+import com.beytullahpaytar.ecommerce.dto.OrderSummaryDto;
 import com.beytullahpaytar.ecommerce.models.Cart;
+import com.beytullahpaytar.ecommerce.models.CartItem;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
 import com.beytullahpaytar.ecommerce.models.Order;
+import com.beytullahpaytar.ecommerce.models.OrderLine;
+import com.beytullahpaytar.ecommerce.models.OrderStatus;
+import com.beytullahpaytar.ecommerce.outbox.OutboxService;
 import com.beytullahpaytar.ecommerce.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +22,7 @@ import org.mockito.*;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +35,15 @@ public class OrderServiceTest {
     @Mock
     private CartService cartService;
 
+    @Spy
+    private OrderProperties orderProperties = new OrderProperties();
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private InventoryService inventoryService;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -32,15 +53,22 @@ public class OrderServiceTest {
     }
 
     @Test
-    void createOrder_shouldSaveOrderAndCompleteCart() {
+    void createOrder_shouldSaveOrderWithLineSnapshotAndCompleteCart() {
         // Arrange
         Cart mockCart = new Cart();
+        mockCart.setId(3L);
+        mockCart.getCartItems().add(cartItem(mockCart, new Item(7L, "Boots", "Leather", Money.valueOf("50.00"), "a.jpg"), 2));
+        mockCart.getCartItems().add(cartItem(mockCart, new Item(8L, "Scarf", "Wool", Money.valueOf("16.67"), "b.jpg"), 3));
         OrderDto dto = new OrderDto("John", "Doe", "john@example.com", "123456", "Some Address");
-        when(cartService.getCart()).thenReturn(mockCart);
-        when(cartService.getTotalPrice()).thenReturn(150.0);
+        when(cartService.lockOpenCart("test-cart-token")).thenReturn(mockCart);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(11L);
+            return order;
+        });
 
         // Act
-        orderService.createOrder(dto);
+        Order result = orderService.createOrder("test-cart-token", dto);
 
         // Assert
         ArgumentCaptor<Order> orderCaptor = ArgumentCaptor.forClass(Order.class);
@@ -48,11 +76,40 @@ public class OrderServiceTest {
         Order savedOrder = orderCaptor.getValue();
 
         assertEquals("John", savedOrder.getName());
-        assertEquals("PENDING", savedOrder.getOrderStatus());
-        assertEquals(mockCart, savedOrder.getCart());
-        assertEquals(150.0, savedOrder.getTotalPrice());
+        assertEquals(OrderStatus.PENDING, savedOrder.getOrderStatus());
+        assertEquals(3L, savedOrder.getCartId());
+        assertEquals(Money.valueOf("150.01"), savedOrder.getTotalPrice());
+        assertEquals(2, savedOrder.getLines().size());
+        OrderLine line = savedOrder.getLines().get(1);
+        assertSame(savedOrder, line.getOrder());
+        assertEquals(8L, line.getItemId());
+        assertEquals("Scarf", line.getName());
+        assertEquals(Money.valueOf("16.67"), line.getUnitPrice());
+        assertEquals(3, line.getQuantity());
+        assertSame(savedOrder, result);
 
-        verify(cartService).completeCart();
+        verify(inventoryService).reserve(mockCart);
+        verify(cartService).completeCart(mockCart);
+        verify(outboxService).record(eq(OrderService.ORDER_AGGREGATE), eq(savedOrder.getId()),
+                eq(OrderService.ORDER_CREATED), argThat(payload -> payload.toString().contains("150.01")));
+    }
+
+    private static CartItem cartItem(Cart cart, Item item, int quantity) {
+        return new CartItem(null, item, quantity, cart);
+    }
+
+    @Test
+    void createOrder_shouldNotSaveOrderWhenStockRunsOut() {
+        Cart mockCart = new Cart();
+        OrderDto dto = new OrderDto("John", "Doe", "john@example.com", "123456", "Some Address");
+        when(cartService.lockOpenCart("test-cart-token")).thenReturn(mockCart);
+        doThrow(new OutOfStockException(7L, 2)).when(inventoryService).reserve(mockCart);
+
+        assertThrows(OutOfStockException.class, () -> orderService.createOrder("test-cart-token", dto));
+
+        verify(orderRepository, never()).save(any());
+        verify(cartService, never()).completeCart(any());
+        verifyNoInteractions(outboxService);
     }
 
     @Test
@@ -71,6 +128,67 @@ public class OrderServiceTest {
         assertEquals(2L, result.get(1).getId());
     }
 
+    @Test
+    void getOrderPage_shouldTrimExtraRowAndReturnNextAfterId() {
+        // Arrange
+        OrderFilter filter = new OrderFilter(OrderStatus.PENDING, null, null);
+        List<OrderSummaryDto> rows = List.of(summary(4L), summary(5L), summary(6L));
+        when(orderRepository.findSummaries(filter, 3L, 0, 3)).thenReturn(rows);
+
+        // Act
+        OrderPageDto<?> page = orderService.getOrderPage(filter, 3L, 2, 2, false);
+
+        // Assert
+        assertEquals(List.of(summary(4L), summary(5L)), page.orders());
+        assertEquals(5L, page.nextAfterId());
+        verify(orderRepository, never()).findWithLinesByIdInOrderByIdAsc(any());
+    }
+
+    @Test
+    void getOrderPage_withoutAfterId_shouldSkipWholePagesAndClampSize() {
+        // Arrange
+        OrderFilter filter = new OrderFilter(null, null, null);
+        when(orderRepository.findSummaries(filter, null, 200, 101)).thenReturn(List.of(summary(201L)));
+
+        // Act
+        OrderPageDto<?> page = orderService.getOrderPage(filter, null, 2, 500, false);
+
+        // Assert
+        assertEquals(1, page.orders().size());
+        assertNull(page.nextAfterId());
+    }
+
+    @Test
+    void getOrderPage_shouldRejectPagesTooDeepInsteadOfOverflowing() {
+        OrderFilter filter = new OrderFilter(null, null, null);
+
+        assertThrows(InvalidRequestException.class,
+                () -> orderService.getOrderPage(filter, null, Integer.MAX_VALUE, 100, false));
+        assertThrows(InvalidRequestException.class, () -> orderService.getOrderPage(filter, null, 101, 100, false));
+        verify(orderRepository, never()).findSummaries(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getOrderPage_withLines_shouldLoadFullOrdersForThePage() {
+        // Arrange
+        OrderFilter filter = new OrderFilter(null, null, null);
+        when(orderRepository.findSummaries(filter, null, 0, 21)).thenReturn(List.of(summary(1L), summary(2L)));
+        Order o1 = new Order(); o1.setId(1L);
+        Order o2 = new Order(); o2.setId(2L);
+        when(orderRepository.findWithLinesByIdInOrderByIdAsc(List.of(1L, 2L))).thenReturn(List.of(o1, o2));
+
+        // Act
+        OrderPageDto<?> page = orderService.getOrderPage(filter, null, 0, null, true);
+
+        // Assert
+        assertEquals(List.of(o1, o2), page.orders());
+        assertNull(page.nextAfterId());
+    }
+
+    private static OrderSummaryDto summary(Long id) {
+        return new OrderSummaryDto(id, "John", "Doe", "john@example.com", OrderStatus.PENDING, Money.valueOf("10.00"), null);
+    }
+
     @Test
     void getOrderById_shouldReturnOrderIfExists() {
         Order order = new Order();
@@ -93,24 +211,68 @@ public class OrderServiceTest {
     }
 
     @Test
-    void updateOrderStatus_shouldUpdateIfExists() {
-        Order order = new Order();
-        order.setId(5L);
-        order.setOrderStatus("PENDING");
-        when(orderRepository.findById(5L)).thenReturn(Optional.of(order));
+    void updateOrderStatus_shouldUpdateFromAnyLegalPreviousStatus() {
+        when(orderRepository.updateStatus(5L, Set.of(OrderStatus.PENDING, OrderStatus.PROCESSING), OrderStatus.SHIPPED))
+                .thenReturn(1);
 
-        orderService.updateOrderStatus(5L, "SHIPPED");
+        orderService.updateOrderStatus(5L, OrderStatus.SHIPPED, null);
 
-        assertEquals("SHIPPED", order.getOrderStatus());
-        verify(orderRepository).save(order);
+        verify(outboxService).record(eq(OrderService.ORDER_AGGREGATE), eq(5L), eq(OrderService.ORDER_STATUS_CHANGED), any());
+        verify(orderRepository, never()).findById(any());
+        verify(orderRepository, never()).save(any());
+        verify(orderRepository, never()).findStatusById(any());
     }
 
     @Test
-    void updateOrderStatus_shouldDoNothingIfNotExists() {
-        when(orderRepository.findById(100L)).thenReturn(Optional.empty());
+    void updateOrderStatus_withExpectedStatus_shouldOnlyUpdateFromIt() {
+        when(orderRepository.updateStatus(5L, Set.of(OrderStatus.PROCESSING), OrderStatus.CANCELLED)).thenReturn(1);
 
-        orderService.updateOrderStatus(100L, "CANCELLED");
+        orderService.updateOrderStatus(5L, OrderStatus.CANCELLED, OrderStatus.PROCESSING);
 
+        verify(orderRepository).updateStatus(5L, Set.of(OrderStatus.PROCESSING), OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void updateOrderStatus_shouldRejectIllegalTransitionWithoutTouchingTheDatabase() {
+        assertThrows(OrderStatusConflictException.class,
+                () -> orderService.updateOrderStatus(5L, OrderStatus.PENDING, OrderStatus.SHIPPED));
+        assertThrows(OrderStatusConflictException.class,
+                () -> orderService.updateOrderStatus(5L, OrderStatus.PENDING, null));
+
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void updateOrderStatus_shouldThrowConflictWhenOrderIsInAnotherStatus() {
+        when(orderRepository.updateStatus(eq(5L), any(), eq(OrderStatus.DELIVERED))).thenReturn(0);
+        when(orderRepository.findStatusById(5L)).thenReturn(Optional.of(OrderStatus.CANCELLED));
+
+        OrderStatusConflictException e = assertThrows(OrderStatusConflictException.class,
+                () -> orderService.updateOrderStatus(5L, OrderStatus.DELIVERED, null));
+        assertTrue(e.getMessage().contains("CANCELLED"));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void updateOrderStatus_shouldThrowNotFoundIfNotExists() {
+        when(orderRepository.updateStatus(eq(100L), any(), eq(OrderStatus.CANCELLED))).thenReturn(0);
+        when(orderRepository.findStatusById(100L)).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class,
+                () -> orderService.updateOrderStatus(100L, OrderStatus.CANCELLED, null));
         verify(orderRepository, never()).save(any());
     }
+
+    @Test
+    void updateOrderStatuses_shouldReportUpdatedAndSkippedIds() {
+        when(orderRepository.updateStatuses(List.of(1L, 2L, 3L), List.of(OrderStatus.PROCESSING.getCode()),
+                OrderStatus.SHIPPED.getCode())).thenReturn(List.of(1L, 3L));
+
+        BulkOrderStatusResultDto result =
+                orderService.updateOrderStatuses(List.of(1L, 2L, 3L), OrderStatus.SHIPPED, OrderStatus.PROCESSING);
+
+        assertEquals(List.of(1L, 3L), result.updated());
+        assertEquals(List.of(2L), result.skipped());
+        verify(outboxService).recordAll(argThat(events -> events.size() == 2));
+    }
 }
@@ -0,0 +1,81 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookup latency of the typeahead trie against catalog size, with generated item names. Every size is
+ * warmed up before it is measured. Run with ./gradlew benchmark, no database needed.
+ */
+@Tag("benchmark")
+public class TypeaheadBenchmark {
+
+    private static final int[] CATALOG_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 200_000;
+
+    private static final String[] WORDS = {
+            "leather", "boots", "running", "shoes", "wool", "scarf", "winter", "jacket", "cotton", "shirt",
+            "denim", "jeans", "silk", "tie", "canvas", "bag", "steel", "watch", "ceramic", "mug", "oak", "table",
+            "linen", "dress", "suede", "belt", "trail", "hat", "classic", "slim", "vintage", "sport", "kids",
+            "black", "brown", "red", "blue", "green", "grey", "white"
+    };
+
+    @Test
+    public void lookupLatency() {
+        Random random = new Random(42);
+        for (int size : CATALOG_SIZES) {
+            List<PrefixTrie.Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entries.add(new PrefixTrie.Entry(i + 1, name(random) + " " + (i % 1000)));
+            }
+
+            long buildStart = System.nanoTime();
+            PrefixTrie trie = PrefixTrie.build(entries, 10, 40);
+            long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+            String[] prefixes = new String[1024];
+            for (int i = 0; i < prefixes.length; i++) {
+                String name = PrefixTrie.normalize(entries.get(random.nextInt(size)).name(), 40);
+                prefixes[i] = name.substring(0, 1 + random.nextInt(Math.min(8, name.length())));
+            }
+
+            int found = 0;
+            for (int i = 0; i < LOOKUPS; i++) { // warm-up
+                found += trie.lookup(prefixes[i % prefixes.length]).size();
+            }
+            long[] nanos = new long[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                long start = System.nanoTime();
+                found += trie.lookup(prefixes[i % prefixes.length]).size();
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+
+            System.out.printf("Typeahead (%d items): %d nodes, %d KiB, built in %d ms, lookup p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n",
+                    size, trie.nodeCount(), trie.memoryBytes() / 1024, buildMillis,
+                    nanos[LOOKUPS / 2] / 1e3, nanos[LOOKUPS * 99 / 100] / 1e3, nanos[LOOKUPS * 999 / 1000] / 1e3);
+            assertTrue(found > 0);
+            assertTrue(nanos[LOOKUPS * 99 / 100] < 1_000_000, "p99 lookup should stay below a millisecond");
+        }
+    }
+
+    private static String name(Random random) {
+        int words = 2 + random.nextInt(3);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            name.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return name.toString();
+    }
+}
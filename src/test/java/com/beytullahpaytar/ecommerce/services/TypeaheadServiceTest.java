@@ -0,0 +1,96 @@
+package com.beytullahpaytar.ecommerce.services;
+
+import com.beytullahpaytar.ecommerce.config.SearchProperties;
+import com.beytullahpaytar.ecommerce.dto.ItemSuggestionDto;
+import com.beytullahpaytar.ecommerce.models.Item;
+import com.beytullahpaytar.ecommerce.models.Money;
+import com.beytullahpaytar.ecommerce.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TypeaheadServiceTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    private final SearchProperties searchProperties = new SearchProperties();
+
+    private TypeaheadService typeaheadService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        searchProperties.setTypeaheadSuggestions(3);
+        when(itemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(
+                item(1L, "Leather Boots"),
+                item(2L, "Leather Belt"),
+                item(3L, "Boot Polish"),
+                item(4L, "Winter Leather Jacket"),
+                item(5L, "Léa's Scarf")));
+        typeaheadService = new TypeaheadService(itemRepository, searchProperties);
+        typeaheadService.load();
+    }
+
+    @Test
+    void suggest_shouldCompleteFromTheStartOfAnyWordShortestFirst() {
+        assertEquals(List.of(3L, 1L), ids(typeaheadService.suggest("boo")));
+        assertEquals(List.of(2L, 1L, 4L), ids(typeaheadService.suggest("LEAT")));
+        assertEquals(List.of(1L), ids(typeaheadService.suggest("leather  bo")));
+    }
+
+    @Test
+    void suggest_shouldFoldAccents() {
+        assertEquals(List.of(5L), ids(typeaheadService.suggest("lea s")));
+    }
+
+    @Test
+    void suggest_shouldReturnNothingForBlankOrUnknownInput() {
+        assertEquals(List.of(), typeaheadService.suggest("  "));
+        assertEquals(List.of(), typeaheadService.suggest("sandal"));
+    }
+
+    @Test
+    void index_shouldBeVisibleBeforeAndAfterTheRebuild() {
+        typeaheadService.index(item(1L, "Suede Boots"));
+        typeaheadService.index(item(6L, "Boots"));
+
+        assertEquals(List.of(6L, 3L, 1L), ids(typeaheadService.suggest("boo")));
+        assertEquals(List.of(2L, 4L), ids(typeaheadService.suggest("leather")));
+
+        typeaheadService.rebuildIfChanged();
+
+        assertEquals(List.of(6L, 3L, 1L), ids(typeaheadService.suggest("boo")));
+        assertEquals(List.of(1L), ids(typeaheadService.suggest("sue")));
+        assertEquals(List.of(2L, 4L), ids(typeaheadService.suggest("leather")));
+    }
+
+    @Test
+    void trie_shouldKeepOnlyTheBestEntriesPerNode() {
+        PrefixTrie trie = PrefixTrie.build(List.of(
+                new PrefixTrie.Entry(1, "Red Red Red"),
+                new PrefixTrie.Entry(2, "Red"),
+                new PrefixTrie.Entry(3, "Reddish Brown")), 2, 40);
+
+        // the same name under several keys is suggested once
+        assertEquals(List.of(2L, 1L), trie.lookup("red").stream().map(PrefixTrie.Entry::id).toList());
+        assertEquals(List.of(3L), trie.lookup("br").stream().map(PrefixTrie.Entry::id).toList());
+        assertEquals(List.of(), trie.lookup("x"));
+    }
+
+    private static Item item(Long id, String name) {
+        return new Item(id, name, "Description", Money.valueOf("10.00"), "image.jpg");
+    }
+
+    private static List<Long> ids(List<ItemSuggestionDto> suggestions) {
+        return suggestions.stream().map(ItemSuggestionDto::id).toList();
+    }
+}